@@ -0,0 +1,460 @@
+package com.wildermods.provider.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import com.wildermods.provider.ProviderSettings;
+import com.wildermods.provider.loader.util.ClasspathProfile;
+import com.wildermods.provider.loader.util.ReadAhead;
+import com.wildermods.provider.loader.util.SharedClassStore;
+import com.wildermods.provider.management.ProviderStatistics;
+import com.wildermods.provider.patch.ProviderGameTransformer;
+
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+
+/**
+ * Loads a generated game jar of 10 000 to 100 000 classes through the provider's transform
+ * path, the way Knot does: every class is offered to a {@link ProviderGameTransformer} built by
+ * the same factory as the provider's and set up the way the provider sets it up for the given
+ * settings, with its class store, in place widening and class load listeners, and read from
+ * the jar if it passes it up. Like the provider at launch, the patched classes defined by the
+ * time the entrypoint is loaded are released before the remaining classes are.
+ *
+ * <pre>gradlew benchmark -PbenchmarkArgs="--classes=10000,100000 --threads=1,8 --rounds=3 --settings=providerSettings.json"</pre>
+ *
+ * For every class count and thread count, each round loads every class into a new class loader
+ * and prints classes per second, load latency percentiles and bytes allocated per class. Without
+ * {@code --settings} the default settings are used.
+ *
+ * Knot's own work is left out, so this measures the provider and class definition only. Mixin is
+ * not applied and never reads a class, so patched classes are released at launch but never on
+ * the second ask; no mods are loaded, so no class is a mixin target; Fabric's builtin transforms,
+ * access wideners included, are not run on the classes this transformer passes up; and classes
+ * are not looked up through Knot's delegate, code sources or parent class loader handling.
+ */
+public class ClassLoadingBenchmark {
+
+	private static final String ENTRYPOINT = "com.worldwalkergames.legacy.LegacyDesktop";
+	private static final String FRAME_CLASS = "com.badlogic.gdx.backends.lwjgl3.Lwjgl3Window";
+	private static final String[] PREFIXES = {"com.worldwalkergames.", "com.badlogic.gdx.", "org.fmod.", "com.codedisaster.steamworks.", "org.lwjgl."};
+	private static final int CLASSES_PER_PACKAGE = 100;
+
+	public static void main(String[] args) throws Exception {
+		int[] classCounts = {10000, 100000};
+		int[] threadCounts = {1, Runtime.getRuntime().availableProcessors()};
+		int rounds = 3;
+		ProviderSettings settings = new ProviderSettings();
+		for(String arg : args) {
+			if(arg.startsWith("--classes=")) {
+				classCounts = parse(arg.substring("--classes=".length()));
+			}
+			else if(arg.startsWith("--threads=")) {
+				threadCounts = parse(arg.substring("--threads=".length()));
+			}
+			else if(arg.startsWith("--rounds=")) {
+				rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+			}
+			else if(arg.startsWith("--settings=")) {
+				settings = ProviderSettings.fromJson(Path.of(arg.substring("--settings=".length())));
+			}
+			else {
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+
+		Path directory = Files.createTempDirectory("provider-benchmark");
+		try {
+			System.out.println(String.format(Locale.ROOT, "%8s %8s %6s %12s %9s %9s %9s %9s %9s %12s", "classes", "threads", "round", "classes/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "bytes/class"));
+			for(int classCount : classCounts) {
+				Path jar = directory.resolve("game-" + classCount + ".jar");
+				String[] names = generate(jar, classCount);
+				for(int threads : threadCounts) {
+					for(int round = 1; round <= rounds; round++) {
+						Result result = run(directory, jar, names, threads, settings);
+						System.out.println(String.format(Locale.ROOT, "%8d %8d %6d %12.0f %9.1f %9.1f %9.1f %9.1f %9.1f %12.0f",
+							names.length, threads, round,
+							names.length / (result.wallNanos / 1e9),
+							result.percentile(0.5) / 1e3, result.percentile(0.9) / 1e3, result.percentile(0.99) / 1e3, result.percentile(0.999) / 1e3,
+							result.latencies[result.latencies.length - 1] / 1e3,
+							result.allocatedBytes < 0 ? Double.NaN : (double) result.allocatedBytes / names.length));
+					}
+				}
+			}
+		}
+		finally {
+			try(Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	private static Result run(Path directory, Path jar, String[] names, int threads, ProviderSettings settings) throws Exception {
+		ProviderGameTransformer transformer = ProviderGameTransformer.create(new ProviderStatistics(PREFIXES), settings);
+
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		boolean measureAllocation = threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled();
+
+		try(BenchmarkClassLoader loader = new BenchmarkClassLoader(jar, transformer)) {
+			transformer.locateEntrypoints(launcher(loader), List.of(jar));
+			configure(transformer, settings, directory, jar);
+
+			long[] latencies = new long[names.length];
+			AtomicInteger next = new AtomicInteger(1); //the entrypoint is loaded first, on its own
+			AtomicLong allocated = new AtomicLong();
+			List<Throwable> failures = new ArrayList<>();
+			Runnable worker = () -> {
+				long allocatedBefore = measureAllocation ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+				try {
+					int i;
+					while((i = next.getAndIncrement()) < names.length) {
+						long start = System.nanoTime();
+						Class.forName(names[i], false, loader);
+						latencies[i] = System.nanoTime() - start;
+					}
+				}
+				catch(Throwable t) {
+					synchronized(failures) {
+						failures.add(t);
+					}
+				}
+				if(measureAllocation) {
+					allocated.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+				}
+			};
+
+			long start = System.nanoTime();
+			long allocatedBefore = measureAllocation ? threadBean.getCurrentThreadAllocatedBytes() : 0;
+			Class.forName(names[0], false, loader);
+			latencies[0] = System.nanoTime() - start;
+			transformer.releaseLoaded(); //as the provider does once the entrypoint is loaded
+			if(measureAllocation) {
+				allocated.addAndGet(threadBean.getCurrentThreadAllocatedBytes() - allocatedBefore);
+			}
+			if(threads == 1) {
+				worker.run();
+			}
+			else {
+				List<Thread> workers = new ArrayList<>();
+				for(int i = 0; i < threads; i++) {
+					Thread thread = new Thread(worker, "Benchmark Loader " + i);
+					workers.add(thread);
+					thread.start();
+				}
+				for(Thread thread : workers) {
+					thread.join();
+				}
+			}
+			long wallNanos = System.nanoTime() - start;
+			if(!failures.isEmpty()) {
+				throw new IllegalStateException("Failed to load classes", failures.get(0));
+			}
+			Arrays.sort(latencies);
+			return new Result(wallNanos, latencies, measureAllocation ? allocated.get() : -1);
+		}
+	}
+
+	/**
+	 * Sets the transformer up the way the provider does once the classpath is known, for a game
+	 * without mods: a class store of the game jar, in place widening of every class as none are
+	 * mixin targets, and the class load listeners.
+	 */
+	private static void configure(ProviderGameTransformer transformer, ProviderSettings settings, Path directory, Path jar) throws IOException {
+		if(settings.sharedClassStoreEnabled()) {
+			String key = SharedClassStore.key(new byte[0], List.of(jar), List.of());
+			transformer.setClassStore(SharedClassStore.open(directory.resolve("classes"), key, List.of(jar), Collections::emptySet));
+		}
+		if(settings.mixinTargetFastPathEnabled()) {
+			transformer.widenUntargeted(className -> false);
+		}
+		if(settings.readAheadEnabled()) {
+			transformer.addClassLoadListener(ReadAhead.start(jar, List.of(), settings.getReadAheadMaxBytes(), directory.resolve("readahead.txt"))::record);
+		}
+		if(settings.classpathOrderingEnabled()) {
+			transformer.addClassLoadListener(ClasspathProfile.load(directory.resolve("classpath.properties"))::hit);
+		}
+	}
+
+	/**
+	 * Writes a jar with the game's entrypoint, the libGDX frame class the provider patches and
+	 * {@code count} filler classes, split between the game's and libGDX's packages.
+	 *
+	 * @return the names of all classes in the jar
+	 */
+	private static String[] generate(Path jar, int count) throws IOException {
+		List<String> names = new ArrayList<>(count + 2);
+		try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+			write(out, ENTRYPOINT, entrypoint());
+			names.add(ENTRYPOINT);
+			write(out, FRAME_CLASS, frameClass());
+			names.add(FRAME_CLASS);
+			for(int i = 0; i < count; i++) {
+				String prefix = i % 2 == 0 ? "com.worldwalkergames.bench." : "com.badlogic.gdx.bench.";
+				String name = prefix + "p" + (i / 2 / CLASSES_PER_PACKAGE) + ".C" + i;
+				write(out, name, filler(name));
+				names.add(name);
+			}
+		}
+		return names.toArray(new String[0]);
+	}
+
+	private static void write(JarOutputStream out, String className, byte[] bytes) throws IOException {
+		out.putNextEntry(new JarEntry(className.replace('.', '/') + ".class"));
+		out.write(bytes);
+		out.closeEntry();
+	}
+
+	private static byte[] entrypoint() {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internal(ENTRYPOINT), null, "java/lang/Object", null);
+		MethodVisitor clinit = cw.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null);
+		clinit.visitCode();
+		clinit.visitInsn(Opcodes.RETURN);
+		clinit.visitMaxs(0, 0);
+		clinit.visitEnd();
+		MethodVisitor main = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+		main.visitCode();
+		main.visitInsn(Opcodes.RETURN);
+		main.visitMaxs(0, 0);
+		main.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static byte[] frameClass() {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internal(FRAME_CLASS), null, "java/lang/Object", null);
+		MethodVisitor update = cw.visitMethod(Opcodes.ACC_PUBLIC, "update", "()Z", null, null);
+		update.visitCode();
+		update.visitInsn(Opcodes.ICONST_1);
+		update.visitInsn(Opcodes.IRETURN);
+		update.visitMaxs(0, 0);
+		update.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/**
+	 * A class about the size of a small game class: a few fields, a constructor and some methods
+	 * with real bodies, so definition and verification have something to do.
+	 */
+	private static byte[] filler(String className) {
+		String name = internal(className);
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+		cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+		cw.visitField(Opcodes.ACC_PRIVATE, "count", "I", null, null).visitEnd();
+		cw.visitField(Opcodes.ACC_PRIVATE, "name", "Ljava/lang/String;", null, null).visitEnd();
+		cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, "values", "Ljava/util/List;", null, null).visitEnd();
+
+		MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		init.visitCode();
+		init.visitVarInsn(Opcodes.ALOAD, 0);
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		init.visitVarInsn(Opcodes.ALOAD, 0);
+		init.visitTypeInsn(Opcodes.NEW, "java/util/ArrayList");
+		init.visitInsn(Opcodes.DUP);
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/util/ArrayList", "<init>", "()V", false);
+		init.visitFieldInsn(Opcodes.PUTFIELD, name, "values", "Ljava/util/List;");
+		init.visitVarInsn(Opcodes.ALOAD, 0);
+		init.visitLdcInsn(className);
+		init.visitFieldInsn(Opcodes.PUTFIELD, name, "name", "Ljava/lang/String;");
+		init.visitInsn(Opcodes.RETURN);
+		init.visitMaxs(0, 0);
+		init.visitEnd();
+
+		for(int m = 0; m < 4; m++) {
+			MethodVisitor method = cw.visitMethod(Opcodes.ACC_PUBLIC, "update" + m, "(I)I", null, null);
+			method.visitCode();
+			Label loop = new Label();
+			Label done = new Label();
+			method.visitInsn(Opcodes.ICONST_0);
+			method.visitVarInsn(Opcodes.ISTORE, 2);
+			method.visitLabel(loop);
+			method.visitVarInsn(Opcodes.ILOAD, 2);
+			method.visitVarInsn(Opcodes.ILOAD, 1);
+			method.visitJumpInsn(Opcodes.IF_ICMPGE, done);
+			method.visitVarInsn(Opcodes.ALOAD, 0);
+			method.visitInsn(Opcodes.DUP);
+			method.visitFieldInsn(Opcodes.GETFIELD, name, "count", "I");
+			method.visitVarInsn(Opcodes.ILOAD, 2);
+			method.visitIntInsn(Opcodes.BIPUSH, m + 3);
+			method.visitInsn(Opcodes.IMUL);
+			method.visitInsn(Opcodes.IADD);
+			method.visitFieldInsn(Opcodes.PUTFIELD, name, "count", "I");
+			method.visitVarInsn(Opcodes.ALOAD, 0);
+			method.visitFieldInsn(Opcodes.GETFIELD, name, "values", "Ljava/util/List;");
+			method.visitVarInsn(Opcodes.ALOAD, 0);
+			method.visitFieldInsn(Opcodes.GETFIELD, name, "name", "Ljava/lang/String;");
+			method.visitMethodInsn(Opcodes.INVOKEINTERFACE, "java/util/List", "add", "(Ljava/lang/Object;)Z", true);
+			method.visitInsn(Opcodes.POP);
+			method.visitIincInsn(2, 1);
+			method.visitJumpInsn(Opcodes.GOTO, loop);
+			method.visitLabel(done);
+			method.visitVarInsn(Opcodes.ALOAD, 0);
+			method.visitFieldInsn(Opcodes.GETFIELD, name, "count", "I");
+			method.visitInsn(Opcodes.IRETURN);
+			method.visitMaxs(0, 0);
+			method.visitEnd();
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static String internal(String className) {
+		return className.replace('.', '/');
+	}
+
+	/**
+	 * Answers what the transformer asks of Knot from the benchmark's class loader.
+	 */
+	private static FabricLauncher launcher(BenchmarkClassLoader loader) {
+		return (FabricLauncher) Proxy.newProxyInstance(ClassLoadingBenchmark.class.getClassLoader(), new Class<?>[] {FabricLauncher.class}, (proxy, method, args) -> {
+			switch(method.getName()) {
+				case "getEntrypoint":
+					return ENTRYPOINT;
+				case "isClassLoaded":
+					return loader.isDefined((String) args[0]);
+				case "getClassByteArray":
+					return loader.read((String) args[0]);
+				case "toString":
+					return "Benchmark Launcher";
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+			}
+			Class<?> type = method.getReturnType();
+			if(type == boolean.class) {
+				return false;
+			}
+			if(type.isPrimitive() && type != void.class) {
+				return 0;
+			}
+			return null;
+		});
+	}
+
+	private static int[] parse(String list) {
+		return Arrays.stream(list.split(",")).mapToInt(Integer::parseInt).toArray();
+	}
+
+	/**
+	 * Finds the benchmark's classes the way Knot finds game classes: ask the entrypoint
+	 * transformer first, then for the builtin transforms as Knot asks the provider, and read
+	 * the class out of its jar if the transformer passes it up.
+	 */
+	private static final class BenchmarkClassLoader extends ClassLoader implements AutoCloseable {
+
+		static {
+			registerAsParallelCapable();
+		}
+
+		private final ZipFile jar;
+		private final ProviderGameTransformer transformer;
+
+		private BenchmarkClassLoader(Path jar, ProviderGameTransformer transformer) throws IOException {
+			super(ClassLoadingBenchmark.class.getClassLoader());
+			this.jar = new ZipFile(jar.toFile());
+			this.transformer = transformer;
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			synchronized(getClassLoadingLock(name)) {
+				Class<?> c = findLoadedClass(name);
+				if(c == null) {
+					c = isGameClass(name) ? findClass(name) : super.loadClass(name, false);
+				}
+				if(resolve) {
+					resolveClass(c);
+				}
+				return c;
+			}
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] bytes = transformer.transform(name);
+			transformer.takeWidened(name);
+			if(bytes == null) {
+				try {
+					bytes = read(name);
+				}
+				catch(IOException e) {
+					throw new ClassNotFoundException(name, e);
+				}
+				if(bytes == null) {
+					throw new ClassNotFoundException(name);
+				}
+			}
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+
+		private byte[] read(String name) throws IOException {
+			ZipEntry entry = jar.getEntry(internal(name) + ".class");
+			if(entry == null) {
+				return null;
+			}
+			try(InputStream in = jar.getInputStream(entry)) {
+				return in.readAllBytes();
+			}
+		}
+
+		private boolean isDefined(String name) {
+			return findLoadedClass(name) != null;
+		}
+
+		private static boolean isGameClass(String name) {
+			for(String prefix : PREFIXES) {
+				if(name.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			jar.close();
+		}
+
+	}
+
+	private static final class Result {
+		private final long wallNanos;
+		private final long[] latencies;
+		private final long allocatedBytes;
+
+		private Result(long wallNanos, long[] latencies, long allocatedBytes) {
+			this.wallNanos = wallNanos;
+			this.latencies = latencies;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		private long percentile(double p) {
+			return latencies[(int) Math.min(latencies.length - 1, Math.ceil(p * latencies.length) - 1)];
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.wildermods.provider.benchmark;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.wildermods.provider.util.logging.LogLevel;
+import com.wildermods.provider.util.logging.Logger;
+
+/**
+ * Creates loggers while more and more loggers already exist, once by setting each one's level in
+ * log4j as it is created, the way {@link Logger}'s constructor used to, and once through
+ * {@link Logger#get(String, LogLevel)}.
+ *
+ * <pre>gradlew loggerBenchmark -PbenchmarkArgs="--existing=0,1000,10000,50000 --batch=1000"</pre>
+ *
+ * For every count of existing loggers, prints the time it took per new logger for each way. The
+ * factory's time includes applying its batched levels at the end of the batch. Setting levels one
+ * by one makes log4j update every logger it has each time, so that column grows with the number
+ * of existing loggers and the factory's column shouldn't.
+ */
+public class LoggerBenchmark {
+
+	public static void main(String[] args) {
+		int[] existingCounts = {0, 1000, 10000, 50000};
+		int batch = 1000;
+		for(String arg : args) {
+			if(arg.startsWith("--existing=")) {
+				existingCounts = Arrays.stream(arg.substring("--existing=".length()).split(",")).mapToInt(Integer::parseInt).toArray();
+			}
+			else if(arg.startsWith("--batch=")) {
+				batch = Integer.parseInt(arg.substring("--batch=".length()));
+			}
+			else {
+				throw new IllegalArgumentException("Unknown argument " + arg);
+			}
+		}
+		Arrays.sort(existingCounts);
+
+		Logger.get(LoggerBenchmark.class); //initialize logging before timing anything
+		Logger.applyPendingLevels();
+
+		System.out.println(String.format(Locale.ROOT, "%10s %8s %18s %18s", "existing", "batch", "per-instance us", "factory us"));
+		int existing = 0;
+		int filler = 0;
+		for(int target : existingCounts) {
+			for(; existing < target; existing++) {
+				Logger.get("bench.existing.L" + filler++, LogLevel.DEBUG);
+			}
+			Logger.applyPendingLevels();
+
+			long start = System.nanoTime();
+			for(int i = 0; i < batch; i++) {
+				Configurator.setLevel(LogManager.getLogger("bench.instance" + existing + ".L" + i), LogLevel.DEBUG.toLog4j());
+			}
+			long perInstance = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for(int i = 0; i < batch; i++) {
+				Logger.get("bench.factory" + existing + ".L" + i, LogLevel.DEBUG);
+			}
+			Logger.applyPendingLevels();
+			long factory = System.nanoTime() - start;
+
+			System.out.println(String.format(Locale.ROOT, "%10d %8d %18.1f %18.1f", existing, batch, perInstance / 1e3 / batch, factory / 1e3 / batch));
+		}
+	}
+
+}
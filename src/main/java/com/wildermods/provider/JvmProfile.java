@@ -0,0 +1,109 @@
+package com.wildermods.provider;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * JVM options the provider should run the game with. Part of {@link ProviderSettings}.
+ *
+ * If the running JVM was not started with these options, the provider relaunches
+ * the game once with them, see {@link com.wildermods.provider.internal.Relauncher}.
+ */
+public class JvmProfile {
+
+	private boolean enabled = false;
+
+	/**
+	 * passed as -Xmx, such as "4G"
+	 */
+	private String maxHeap = "";
+
+	/**
+	 * passed as -Xms
+	 */
+	private String initialHeap = "";
+
+	/**
+	 * one of G1, ZGC, Shenandoah, Parallel or Serial
+	 */
+	private String garbageCollector = "";
+
+	/**
+	 * location of a class data sharing archive, which is created on the first launch
+	 */
+	private String classDataSharingArchive = "";
+
+	/**
+	 * any other options, such as JIT flags
+	 */
+	private List<String> extraArguments = new ArrayList<>();
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param javaVersion the feature version of the running JVM
+	 * @return the JVM options this profile asks for
+	 */
+	public List<String> toArguments(int javaVersion) {
+		List<String> arguments = new ArrayList<>();
+		if(!isBlank(maxHeap)) {
+			arguments.add("-Xmx" + maxHeap.trim());
+		}
+		if(!isBlank(initialHeap)) {
+			arguments.add("-Xms" + initialHeap.trim());
+		}
+		if(!isBlank(garbageCollector)) {
+			switch(garbageCollector.trim().toLowerCase(Locale.ROOT)) {
+				case "g1":
+					arguments.add("-XX:+UseG1GC");
+					break;
+				case "zgc":
+				case "z":
+					arguments.add("-XX:+UseZGC");
+					break;
+				case "shenandoah":
+					arguments.add("-XX:+UseShenandoahGC");
+					break;
+				case "parallel":
+					arguments.add("-XX:+UseParallelGC");
+					break;
+				case "serial":
+					arguments.add("-XX:+UseSerialGC");
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown garbage collector " + garbageCollector);
+			}
+		}
+		if(!isBlank(classDataSharingArchive)) {
+			Path archive = Path.of(classDataSharingArchive.trim()).toAbsolutePath();
+			if(javaVersion >= 19) {
+				arguments.add("-XX:+AutoCreateSharedArchive");
+				arguments.add("-XX:SharedArchiveFile=" + archive);
+			}
+			else if(Files.exists(archive)) {
+				arguments.add("-XX:SharedArchiveFile=" + archive);
+			}
+			else {
+				arguments.add("-XX:ArchiveClassesAtExit=" + archive);
+			}
+		}
+		if(extraArguments != null) {
+			for(String argument : extraArguments) {
+				if(!isBlank(argument)) {
+					arguments.add(argument.trim());
+				}
+			}
+		}
+		return arguments;
+	}
+
+	private static boolean isBlank(String s) {
+		return s == null || s.isBlank();
+	}
+
+}
@@ -11,13 +11,69 @@ import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.stream.JsonReader;
 
+import com.wildermods.provider.loader.util.LibraryDeduplicator;
+
 public class ProviderSettings {
 	
 	private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 	
+	public static final int DEFAULT_LOG_REPLAY_BUFFER_SIZE = 4096;
+	
 	@Deprecated
 	private boolean enableWorkshopCoremods = false;
 	
+	private boolean binaryDebugLog = false;
+	
+	private boolean jsonLog = false;
+	
+	private boolean nativesCache = false;
+	
+	private LibraryDeduplicator.Policy libraryConflictPolicy = LibraryDeduplicator.Policy.NEWEST;
+	
+	private boolean classpathOrdering = false;
+	
+	private boolean stallWatchdog = true;
+	
+	private long stallThresholdMillis = 5000;
+	
+	private boolean frameTimeHistogram = false;
+	
+	private boolean assetReadTracing = false;
+	
+	private boolean assetCache = false;
+	
+	private long assetCacheMaxBytes = 64L * 1024 * 1024;
+	
+	private long assetCacheMapThreshold = 1024 * 1024;
+	
+	private boolean gcTelemetry = false;
+	
+	private long gcTelemetryIntervalMillis = 1000;
+	
+	private JvmProfile jvmProfile = new JvmProfile();
+	
+	private boolean readAhead = false;
+	
+	private long readAheadMaxBytes = 512L * 1024 * 1024;
+	
+	private boolean sharedClassStore = false;
+	
+	private boolean mixinTargetFastPath = false;
+	
+	private boolean serviceDiagnostics = false;
+	
+	private boolean metricsEnabled = false;
+	
+	private int metricsPort = 9225;
+	
+	private int logFloodLimit = 20;
+	
+	private long logFloodWindowMillis = 1000;
+	
+	private long logRetentionBytes = 512L * 1024 * 1024;
+	
+	private int logReplayBufferSize = DEFAULT_LOG_REPLAY_BUFFER_SIZE;
+	
 	public ProviderSettings() {
 		this(false);
 	}
@@ -30,6 +86,197 @@ public class ProviderSettings {
 		return false;
 	}
 	
+	/**
+	 * @return true if logs/debug.log should be replaced by the compact logs/debug.bin.
+	 * Use {@link com.wildermods.provider.util.logging.BinaryLogDecoder} to read it.
+	 */
+	public boolean binaryDebugLogEnabled() {
+		return binaryDebugLog;
+	}
+	
+	/**
+	 * @return true if everything written to logs/latest.log should also be written to
+	 * logs/latest.jsonl as one JSON object per line
+	 */
+	public boolean jsonLogEnabled() {
+		return jsonLog;
+	}
+	
+	/**
+	 * @return true if native libraries inside the game's library jars should be extracted
+	 * once into cache/natives in the game directory, instead of into fresh temporary
+	 * directories every launch
+	 */
+	public boolean nativesCacheEnabled() {
+		return nativesCache;
+	}
+	
+	/**
+	 * @return which jar to keep when the game's library folders contain several versions of
+	 * the same library. Identical copies of a jar are always reduced to one.
+	 */
+	public LibraryDeduplicator.Policy getLibraryConflictPolicy() {
+		return libraryConflictPolicy == null ? LibraryDeduplicator.Policy.NEWEST : libraryConflictPolicy;
+	}
+	
+	/**
+	 * @return true if library jars should be put on the classpath busiest first, based on
+	 * how many classes were loaded from each of them in previous launches
+	 */
+	public boolean classpathOrderingEnabled() {
+		return classpathOrdering;
+	}
+	
+	/**
+	 * @return true if the main thread's stack should be sampled and logged whenever the
+	 * game stops rendering frames for longer than {@link #getStallThresholdMillis()}
+	 */
+	public boolean stallWatchdogEnabled() {
+		return stallWatchdog;
+	}
+	
+	public long getStallThresholdMillis() {
+		return stallThresholdMillis;
+	}
+	
+	/**
+	 * @return true if the duration of every frame should be recorded, with a summary logged
+	 * once a minute and the full histogram written to logs/frame-times.csv on exit
+	 */
+	public boolean frameTimeHistogramEnabled() {
+		return frameTimeHistogram;
+	}
+	
+	/**
+	 * @return true if every file the game opens or reads through libGDX should be timed, with
+	 * the slowest and most repeated reads written to logs/asset-reads.txt on exit. When false
+	 * the game's file handling is left untouched.
+	 */
+	public boolean assetReadTracingEnabled() {
+		return assetReadTracing;
+	}
+	
+	/**
+	 * @return true if the contents of the game's internal and local asset files should be
+	 * cached, so reading the same file again doesn't go to disk
+	 */
+	public boolean assetCacheEnabled() {
+		return assetCache;
+	}
+	
+	/**
+	 * @return how much heap the cached contents of small asset files may take up
+	 */
+	public long getAssetCacheMaxBytes() {
+		return assetCacheMaxBytes;
+	}
+	
+	/**
+	 * @return the size from which asset files are memory mapped instead of held on the heap
+	 */
+	public long getAssetCacheMapThreshold() {
+		return assetCacheMapThreshold;
+	}
+	
+	/**
+	 * @return true if garbage collections and the main thread's allocation rate should be
+	 * recorded to logs/gc.csv
+	 */
+	public boolean gcTelemetryEnabled() {
+		return gcTelemetry;
+	}
+	
+	public long getGcTelemetryIntervalMillis() {
+		return Math.max(100, gcTelemetryIntervalMillis);
+	}
+	
+	/**
+	 * @return the JVM options the game should run with. Disabled by default.
+	 */
+	public JvmProfile getJvmProfile() {
+		return jvmProfile == null ? new JvmProfile() : jvmProfile;
+	}
+	
+	/**
+	 * @return true if the game jar and the largest library jars should be read into the
+	 * OS page cache in the background while the game starts. Helps on hard drives and
+	 * network drives, does nothing useful on an SSD.
+	 */
+	public boolean readAheadEnabled() {
+		return readAhead;
+	}
+	
+	/**
+	 * @return how many bytes of jars read ahead may read in total
+	 */
+	public long getReadAheadMaxBytes() {
+		return readAheadMaxBytes;
+	}
+	
+	/**
+	 * @return true if class files should be served from a memory mapped store in cache/classes
+	 * which is shared by every instance of the game running the same version and mods
+	 */
+	public boolean sharedClassStoreEnabled() {
+		return sharedClassStore;
+	}
+	
+	/**
+	 * @return true if game classes which no mixin targets should have their package access
+	 * widened by the provider, so Fabric doesn't need to rewrite them
+	 */
+	public boolean mixinTargetFastPathEnabled() {
+		return mixinTargetFastPath;
+	}
+	
+	/**
+	 * @return true if the classpath should be searched for CrashLogService configurations
+	 * and every one found logged. Opens every jar on the classpath.
+	 */
+	public boolean serviceDiagnosticsEnabled() {
+		return serviceDiagnostics;
+	}
+	
+	/**
+	 * @return true if runtime health metrics of the running game should be served at
+	 * http://127.0.0.1:{@link #getMetricsPort()}/metrics in the OpenMetrics text format
+	 */
+	public boolean metricsEnabled() {
+		return metricsEnabled;
+	}
+	
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+	
+	/**
+	 * @return how many times an identical log event may be logged per {@link #getLogFloodWindowMillis()}
+	 * before further repeats are suppressed. 0 disables suppression.
+	 */
+	public int getLogFloodLimit() {
+		return logFloodLimit;
+	}
+	
+	public long getLogFloodWindowMillis() {
+		return logFloodWindowMillis;
+	}
+	
+	/**
+	 * @return how much space the compressed logs of previous sessions may take up in total
+	 * before the oldest are deleted
+	 */
+	public long getLogRetentionBytes() {
+		return logRetentionBytes;
+	}
+	
+	/**
+	 * @return how many log events from before log4j is set up are kept to be written to the
+	 * log files. Older events past this are only printed to the console.
+	 */
+	public int getLogReplayBufferSize() {
+		return logReplayBufferSize;
+	}
+	
 	public static ProviderSettings fromJson(Path file) throws JsonIOException, JsonSyntaxException, IOException {
 		if(Files.exists(file)) {
 			JsonReader reader = new JsonReader(Files.newBufferedReader(file));
@@ -4,6 +4,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOError;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -27,6 +29,7 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 import java.util.zip.ZipFile;
 
 import org.objectweb.asm.Opcodes;
@@ -38,10 +41,32 @@ import com.google.gson.JsonSyntaxException;
 
 import com.wildermods.provider.internal.ASMMetadataRetriever;
 import com.wildermods.provider.internal.FabricMixinMetadataRetriever;
+import com.wildermods.provider.internal.Relauncher;
+import com.wildermods.provider.internal.StartupGraph;
+import com.wildermods.provider.internal.StartupGraph.Task;
+import com.wildermods.provider.internal.StartupGraph.TaskLog;
+import com.wildermods.provider.loader.util.AssetCache;
+import com.wildermods.provider.loader.util.ClasspathProfile;
+import com.wildermods.provider.loader.util.LibraryDeduplicator;
+import com.wildermods.provider.loader.util.LibraryDeduplicator.Library;
+import com.wildermods.provider.loader.util.MixinTargetIndex;
+import com.wildermods.provider.loader.util.NativeLibraryCache;
 import com.wildermods.provider.loader.util.OS;
-import com.wildermods.provider.patch.LegacyPatch;
+import com.wildermods.provider.loader.util.ReadAhead;
+import com.wildermods.provider.loader.util.SharedClassStore;
+import com.wildermods.provider.management.GcTelemetry;
+import com.wildermods.provider.management.MetricsServer;
+import com.wildermods.provider.management.ProviderStatistics;
+import com.wildermods.provider.management.ProviderStatistics.PackageCounters;
+import com.wildermods.provider.patch.ProviderGameTransformer;
+import com.wildermods.provider.services.CrashFingerprint;
+import com.wildermods.provider.services.CrashIndex;
 import com.wildermods.provider.services.CrashLogService;
+import com.wildermods.provider.services.ServiceIndex;
+import com.wildermods.provider.util.logging.LogRollover;
 import com.wildermods.provider.util.logging.Logger;
+import com.wildermods.provider.util.logging.ReplayLogHandler;
+import com.wildermods.provider.watchdog.StallWatchdog;
 
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
@@ -67,10 +92,19 @@ public class WildermythGameProvider implements GameProvider {
 	private static final String[] ASM_ = new String[] {"org.objectweb.asm.Opcodes"};
 	private static final String[] MIXIN = new String[] {"org.spongepowered.asm.mixin.Mixin"};
 	private static final HashSet<String> SENSITIVE_ARGS = new HashSet<String>(Arrays.asList(new String[] {}));
+	private static final String[] WILDERMYTH_PACKAGES = new String[] {
+		"com.worldwalkergames.",
+		"com.badlogic.gdx.",
+		"org.fmod.",
+		"com.codedisaster.steamworks.",
+		"org.lwjgl."
+	};
+	private static final ProviderStatistics STATISTICS = new ProviderStatistics(WILDERMYTH_PACKAGES);
 	private static final Path PROVIDER_SETTINGS_FILE = Path.of(".").normalize().resolve("providerSettings.json");
+	private static final ReplayLogHandler LOG_REPLAY = new ReplayLogHandler(ProviderSettings.DEFAULT_LOG_REPLAY_BUFFER_SIZE);
 	private static final ProviderSettings SETTINGS;
 	static {
-		Log.configureBuiltin(true, true);
+		Log.init(LOG_REPLAY);
 		ProviderSettings settings;
 		try {
 			settings = ProviderSettings.fromJson(PROVIDER_SETTINGS_FILE);
@@ -83,6 +117,7 @@ public class WildermythGameProvider implements GameProvider {
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+		LOG_REPLAY.setCapacity(settings.getLogReplayBufferSize());
 		SETTINGS = settings;
 	}
 	
@@ -97,7 +132,15 @@ public class WildermythGameProvider implements GameProvider {
 	
 	private CrashLogService crashLogService;
 	
-	private static final GameTransformer TRANSFORMER = new GameTransformer(new LegacyPatch());
+	private StartupGraph startup;
+	private Task<StringVersion> gameVersion;
+	private Task<BuiltinModMetadata.Builder> asmMetadata;
+	private Task<BuiltinModMetadata.Builder> mixinMetadata;
+	
+	private NativeLibraryCache nativesCache;
+	private List<Task<List<Path>>> cacheNatives;
+	
+	private static final ProviderGameTransformer TRANSFORMER = ProviderGameTransformer.create(STATISTICS, SETTINGS);
 	
 	public WildermythGameProvider() throws IOException, InterruptedException, TimeoutException {
 		if(SystemProperties.isSet(SystemProperties.ADD_MODS) && Boolean.getBoolean(SystemProperties.DEVELOPMENT)) {
@@ -195,9 +238,13 @@ public class WildermythGameProvider implements GameProvider {
 			throw e;
 		}
 		
-		BuiltinModMetadata.Builder asmMetaData = ASMMetadataRetriever.retrieve();
+		BuiltinModMetadata.Builder asmMetaData = asmMetadata != null ? asmMetadata.join() : ASMMetadataRetriever.retrieve();
 		
-		BuiltinModMetadata.Builder mixinMetaData = FabricMixinMetadataRetriever.retrieve();
+		BuiltinModMetadata.Builder mixinMetaData = mixinMetadata != null ? mixinMetadata.join() : FabricMixinMetadataRetriever.retrieve();
+		
+		if(startup != null) {
+			startup.close();
+		}
 		
 		ArrayList<BuiltinMod> builtinMods = new ArrayList<>();
 		
@@ -258,92 +305,136 @@ public class WildermythGameProvider implements GameProvider {
 		
 		this.arguments = new Arguments();
 		arguments.parse(args);
-		Map<Path, ZipFile> zipFiles = new HashMap<>();
-		List<Path> lookupPaths = new ArrayList<>();
 		
-		try {
-			String gameJarProperty = System.getProperty(SystemProperties.GAME_JAR_PATH);
-			GameProviderHelper.FindResult result = null;
-			if(gameJarProperty == null) {
-				gameJarProperty = getLaunchDirectory().resolve("wildermyth.jar").toString();
-			}
-			if(gameJarProperty != null) {
-				Path path = Paths.get(gameJarProperty);
-				if (!Files.exists(path)) {
-					throw new RuntimeException("Game jar configured through " + SystemProperties.GAME_JAR_PATH + " system property doesn't exist (" + path.normalize().toAbsolutePath() + ")");
-				}
-				lookupPaths.add(path);
-				result = GameProviderHelper.findFirst(Collections.singletonList(path), zipFiles, true, ENTRYPOINTS);
-			}
-			
-			if(result == null) {
-				return false;
-			}
-			
-			entrypoint = result.name;
-			gameJar = result.path;
-			try {
-				asmJar = GameProviderHelper.findFirst(Collections.singletonList(Paths.get(Opcodes.class.getProtectionDomain().getCodeSource().getLocation().toURI())), zipFiles, true, ASM_).path;
-			} catch (URISyntaxException e) {
-				asmJar = null;
-			}
-			
-			try {
-				mixinJar = GameProviderHelper.findFirst(Collections.singletonList(Paths.get(Mixin.class.getProtectionDomain().getCodeSource().getLocation().toURI())), zipFiles, true, MIXIN).path;
-			} catch (URISyntaxException e) {
-				asmJar = null;
+		if(SETTINGS.getJvmProfile().isEnabled()) {
+			relaunchIfNeeded();
+		}
+		
+		LogRollover.renameOnStartup(Path.of("logs"));
+		
+		String gameJarProperty = System.getProperty(SystemProperties.GAME_JAR_PATH);
+		if(gameJarProperty == null) {
+			gameJarProperty = getLaunchDirectory().resolve("wildermyth.jar").toString();
+		}
+		Path gameJarPath = Paths.get(gameJarProperty);
+		if (!Files.exists(gameJarPath)) {
+			throw new RuntimeException("Game jar configured through " + SystemProperties.GAME_JAR_PATH + " system property doesn't exist (" + gameJarPath.normalize().toAbsolutePath() + ")");
+		}
+		
+		startup = new StartupGraph();
+		Task<GameProviderHelper.FindResult> gameJarTask = startup.add("locate game jar", log -> findFirst(gameJarPath, ENTRYPOINTS));
+		Task<Path> asmJarTask = startup.add("locate asm", log -> findCodeSource(Opcodes.class, ASM_));
+		Task<Path> mixinJarTask = startup.add("locate mixin", log -> findCodeSource(Mixin.class, MIXIN));
+		gameVersion = startup.add("read game version", log -> readGameVersion());
+		asmMetadata = startup.add("retrieve asm metadata", log -> ASMMetadataRetriever.retrieve());
+		mixinMetadata = startup.add("retrieve mixin metadata", log -> FabricMixinMetadataRetriever.retrieve());
+		
+		GameProviderHelper.FindResult result = gameJarTask.join();
+		if(result == null) {
+			startup.close();
+			return false;
+		}
+		
+		entrypoint = result.name;
+		gameJar = result.path;
+		asmJar = asmJarTask.join();
+		mixinJar = mixinJarTask.join();
+		
+		processArgumentMap(arguments);
+		
+		locateFilesystemDependencies();
+		
+		if(SETTINGS.nativesCacheEnabled()) {
+			nativesCache = new NativeLibraryCache(getLaunchDirectory().resolve("cache").resolve("natives"));
+			cacheNatives = new ArrayList<>();
+			for(Path lib : miscGameLibraries) {
+				cacheNatives.add(startup.add("cache natives of " + lib.getFileName(), log -> nativesCache.extract(lib, log)));
 			}
-			
-			
 		}
-		finally {
-			for(ZipFile f : zipFiles.values()) {
+		
+		if(SETTINGS.readAheadEnabled()) {
+			ReadAhead readAhead = ReadAhead.start(gameJar, miscGameLibraries, SETTINGS.getReadAheadMaxBytes(), getLaunchDirectory().resolve("cache").resolve("readahead.txt"));
+			TRANSFORMER.addClassLoadListener(readAhead::record);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 				try {
-					f.close();
+					readAhead.save();
 				}
 				catch(IOException e) {
-					//ignore
+					e.printStackTrace(); //logging may already be shut down
 				}
-			}
+			}, "Provider Read Ahead Sequence"));
 		}
 		
-		processArgumentMap(arguments);
-		
+		STATISTICS.setGameLocation(gameJar, libDir, miscGameLibraries);
+		try {
+			STATISTICS.register();
+		}
+		catch(Throwable t) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not register provider MBean", t);
+		}
 		
+		return true;
 		
-		locateFilesystemDependencies();
+	}
+	
+	/**
+	 * Restarts the game in a new JVM if the running one was not started with the options of the
+	 * configured {@link JvmProfile}. Does not return if the game was relaunched.
+	 */
+	private void relaunchIfNeeded() {
+		List<String> current = ManagementFactory.getRuntimeMXBean().getInputArguments();
+		List<String> desired;
+		try {
+			desired = SETTINGS.getJvmProfile().toArguments(Runtime.version().feature());
+		}
+		catch(IllegalArgumentException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Ignoring invalid JVM profile", e);
+			return;
+		}
 		
-		return true;
+		List<String> missing = Relauncher.missing(desired, current);
+		if(missing.isEmpty()) {
+			return;
+		}
+		if(Relauncher.isRelaunched()) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Game was already relaunched but the JVM is still missing " + missing + ", continuing without them");
+			return;
+		}
 		
+		Log.info(LogCategory.GAME_PROVIDER, "Relaunching the game with JVM options " + missing);
+		int exitCode;
+		try {
+			exitCode = Relauncher.relaunch(current, desired, getLaunchArguments(false));
+		}
+		catch(IOException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not relaunch the game, continuing with the current JVM", e);
+			return;
+		}
+		catch(InterruptedException e) {
+			exitCode = 1;
+		}
+		System.exit(exitCode);
 	}
 	
-	private void initializeLogging(ClassLoader loader) {
+	private void initializeLogging(FabricLauncher launcher) {
+		ClassLoader loader = launcher.getTargetClassLoader();
 		crashLogService = null;
-
-		Enumeration<URL> urls;
-		try {
-			urls = loader.getResources("META-INF/services/com.wildermods.provider.services.CrashLogService");
-			System.out.println("searching " + loader);
-			while (urls.hasMoreElements()) {
-			    System.out.println(loader + "Found service config in: " + urls.nextElement());
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
+		
+		if(SETTINGS.serviceDiagnosticsEnabled()) {
+			logServiceConfigurations(loader);
+			logServiceConfigurations(WildermythGameProvider.class.getClassLoader());
 		}
 		
+		ServiceIndex services = null;
 		try {
-			urls = WildermythGameProvider.class.getClassLoader().getResources("META-INF/services/com.wildermods.provider.services.CrashLogService");
-			System.out.println("searching " + WildermythGameProvider.class.getClassLoader());
-			while (urls.hasMoreElements()) {
-			    System.out.println(WildermythGameProvider.class.getClassLoader() + "Found service config in: " + urls.nextElement());
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
+			services = ServiceIndex.load(getLaunchDirectory().resolve("cache").resolve("services.properties"), launcher.getClassPath());
+		}
+		catch(IOException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not index services, scanning the classpath instead", e);
 		}
-
 		
 		try {
-			crashLogService = CrashLogService.obtain(loader);
+			crashLogService = CrashLogService.obtain(loader, services);
 		}
 		catch(Throwable t) {
 			throw new Error(t);
@@ -353,60 +444,207 @@ public class WildermythGameProvider implements GameProvider {
 		try {
 			//Constructor<? extends LogHandler> loggerClass = (Constructor<? extends LogHandler>) loader.loadClass("com.wildermods.provider.util.logging.Logger").getConstructor(String.class);
 			//logHandler = loggerClass.newInstance("Fabric Loader");
-			Log.init(new Logger("Fabric Loader"));
+			Logger.configureFloodGuard(SETTINGS.getLogFloodLimit(), SETTINGS.getLogFloodWindowMillis());
+			Logger fabricLogger = Logger.get("Fabric Loader");
+			Logger.applyPendingLevels(); //so log4j filters the replayed events by the levels set so far
+			LOG_REPLAY.handOff(fabricLogger);
 			Log.log(LogLevel.ERROR, LogCategory.GAME_PATCH, "Logging Initialized");
 			
 		} catch (Throwable t) {
 			Log.error(LogCategory.GAME_PROVIDER, "Crash log service could not be defined", t);
 		}
+		
+		if(SETTINGS.binaryDebugLogEnabled()) {
+			try {
+				Logger.enableBinaryDebugLog(Path.of("logs", "debug.bin"));
+				Log.info(LogCategory.GAME_PROVIDER, "Debug log is being written to logs/debug.bin");
+			}
+			catch(Throwable t) {
+				Log.error(LogCategory.GAME_PROVIDER, "Could not enable binary debug log, falling back to logs/debug.log", t);
+			}
+		}
+		
+		if(SETTINGS.jsonLogEnabled()) {
+			try {
+				Logger.enableJsonLog(Path.of("logs", "latest.jsonl"));
+			}
+			catch(Throwable t) {
+				Log.error(LogCategory.GAME_PROVIDER, "Could not enable JSON log", t);
+			}
+		}
 
 		Log.log(LogLevel.ERROR, LogCategory.GAME_PROVIDER, "Crash log service is: " + crashLogService);
 	}
 
+	private static void logServiceConfigurations(ClassLoader loader) {
+		try {
+			Enumeration<URL> urls = loader.getResources("META-INF/services/" + CrashLogService.class.getName());
+			Log.info(LogCategory.GAME_PROVIDER, "Searching " + loader + " for " + CrashLogService.class.getSimpleName() + " configurations");
+			while(urls.hasMoreElements()) {
+				Log.info(LogCategory.GAME_PROVIDER, loader + " found service config in: " + urls.nextElement());
+			}
+		}
+		catch(IOException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not search " + loader + " for service configurations", e);
+		}
+	}
+
 	private void locateFilesystemDependencies() {
+		Task<List<Path>> libraries = startup.add("list " + libDir, log -> listLibraries(libDir, log));
+		Task<List<Path>> launchDirLibraries = startup.add("list " + launchDir, log -> listLaunchDirLibraries(launchDir, log));
+		startup.join(libraries, launchDirLibraries);
+		
+		List<Path> candidates = new ArrayList<>(libraries.join());
+		candidates.addAll(launchDirLibraries.join());
+		
+		Task<Library> game = startup.add("scan " + gameJar.getFileName(), log -> LibraryDeduplicator.scan(gameJar, log));
+		List<Task<Library>> scans = new ArrayList<>();
+		for(Path candidate : candidates) {
+			scans.add(startup.add("scan " + candidate.getFileName(), log -> LibraryDeduplicator.scan(candidate, log)));
+		}
+		startup.join(game);
+		startup.join(scans.toArray(new Task<?>[0]));
+		
+		List<Library> scanned = new ArrayList<>(scans.size());
+		for(Task<Library> scan : scans) {
+			scanned.add(scan.join());
+		}
+		List<Library> deduplicated = LibraryDeduplicator.deduplicate(game.join(), scanned, SETTINGS.getLibraryConflictPolicy());
+		if(deduplicated.size() != candidates.size()) {
+			Log.info(LogCategory.GAME_PROVIDER, "Removed " + (candidates.size() - deduplicated.size()) + " duplicate libraries from the classpath");
+		}
+		
+		if(SETTINGS.classpathOrderingEnabled()) {
+			deduplicated = orderClasspath(game.join(), deduplicated);
+		}
+		for(Library library : deduplicated) {
+			miscGameLibraries.add(library.getPath());
+		}
+	}
+	
+	private List<Library> orderClasspath(Library game, List<Library> libraries) {
+		ClasspathProfile profile;
+		try {
+			profile = ClasspathProfile.load(getLaunchDirectory().resolve("cache").resolve("classpath.properties"));
+		}
+		catch(IOException | IllegalArgumentException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not read classpath profile, libraries will not be reordered", e);
+			return libraries;
+		}
+		List<Library> ordered = profile.order(game, libraries);
+		TRANSFORMER.addClassLoadListener(profile::hit);
+		Thread save = new Thread(() -> {
+			try {
+				profile.save();
+			}
+			catch(IOException e) {
+				e.printStackTrace(); //logging may already be shut down
+			}
+		}, "Provider Classpath Profile");
+		Runtime.getRuntime().addShutdownHook(save);
+		return ordered;
+	}
+	
+	private static List<Path> listLibraries(Path libDir, TaskLog log) {
+		List<Path> found = new ArrayList<>();
 		File lib = libDir.toFile();
 		for(File dep : lib.listFiles()) {
 			if(dep.getName().endsWith(".jar")) {
-				miscGameLibraries.add(dep.toPath());
-				Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Adding " + dep);
+				found.add(dep.toPath());
+				log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Adding " + dep);
 			}
 			else {
-				Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping non-jar dependency " + dep);
+				log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping non-jar dependency " + dep);
 			}
 		}
-		
+		return found;
+	}
+	
+	private static List<Path> listLaunchDirLibraries(Path launchDir, TaskLog log) {
+		List<Path> found = new ArrayList<>();
 		for(File dep : launchDir.toFile().listFiles()) {
 			if(dep.getName().endsWith(".jar")) {
 				if(dep.getName().equals("wildermyth.jar")) {
-					Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER,"Skipping wildermyth.jar");
+					log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER,"Skipping wildermyth.jar");
 				}
 				else if (dep.getName().contains("wilderforge-")) {
-					Log.log(LogLevel.WARN, LogCategory.GAME_PROVIDER, "Skipping " + dep.getName() + " because we are in a development environment");
+					log.log(LogLevel.WARN, LogCategory.GAME_PROVIDER, "Skipping " + dep.getName() + " because we are in a development environment");
 				}
 				else if(dep.getPath().contains("fabric/") || dep.getName().startsWith("fabric-")) {
-					Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping fabric dep " + dep.getName());
+					log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping fabric dep " + dep.getName());
 				}
 				else if(dep.getName().startsWith("provider")) {
-					Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping game provider " + dep.getName());
+					log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping game provider " + dep.getName());
 				}
 				else if (dep.getName().endsWith(".jar")) {
-					Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Adding " + dep.toPath());
-					miscGameLibraries.add(dep.toPath());
+					log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Adding " + dep.toPath());
+					found.add(dep.toPath());
 				}
 			}
 			else {
-				Log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping non-jar file " + dep);
+				log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Skipping non-jar file " + dep);
 			}
 		}
-
+		return found;
+	}
+	
+	private void publishNatives() {
+		startup.join(cacheNatives.toArray(new Task<?>[0]));
+		List<Path> natives = new ArrayList<>();
+		for(Task<List<Path>> task : cacheNatives) {
+			natives.addAll(task.join());
+		}
+		try {
+			nativesCache.publish(natives);
+			int pruned = nativesCache.prune(natives);
+			Log.debug(LogCategory.GAME_PROVIDER, natives.size() + " native libraries cached in " + nativesCache.getRoot() + ", " + pruned + " stale entries removed");
+		}
+		catch(IOException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not publish native library cache", e);
+		}
+	}
+	
+	private static GameProviderHelper.FindResult findFirst(Path path, String... classNames) {
+		Map<Path, ZipFile> zipFiles = new HashMap<>();
+		try {
+			return GameProviderHelper.findFirst(Collections.singletonList(path), zipFiles, true, classNames);
+		}
+		finally {
+			for(ZipFile f : zipFiles.values()) {
+				try {
+					f.close();
+				}
+				catch(IOException e) {
+					//ignore
+				}
+			}
+		}
+	}
+	
+	private static Path findCodeSource(Class<?> clazz, String... classNames) {
+		Path path;
+		try {
+			path = Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+		}
+		catch(URISyntaxException e) {
+			return null;
+		}
+		return findFirst(path, classNames).path;
 	}
 
 	@Override
 	public void initialize(FabricLauncher launcher) {
 		
-		initializeLogging(launcher.getTargetClassLoader());
+		initializeLogging(launcher);
+		
+		if(cacheNatives != null) {
+			publishNatives();
+		}
 		
-		TRANSFORMER.locateEntrypoints(launcher, List.of(gameJar));
+		List<Path> patchable = new ArrayList<>(miscGameLibraries.size() + 1);
+		patchable.add(gameJar);
+		patchable.addAll(miscGameLibraries); //the libGDX backend is a separate jar
+		TRANSFORMER.locateEntrypoints(launcher, patchable);
 	}
 
 	@Override
@@ -430,6 +668,76 @@ public class WildermythGameProvider implements GameProvider {
 			launcher.addToClassPath(lib);
 		}
 		
+		if(SETTINGS.sharedClassStoreEnabled()) {
+			openClassStore();
+		}
+		
+		if(SETTINGS.mixinTargetFastPathEnabled()) {
+			indexMixinTargets();
+		}
+		
+	}
+	
+	private void openClassStore() {
+		List<Path> jars = new ArrayList<>(miscGameLibraries.size() + 1);
+		jars.add(gameJar);
+		jars.addAll(miscGameLibraries);
+		
+		List<String> mods = new ArrayList<>();
+		for(ModContainer mod : FabricLoader.getInstance().getAllMods()) {
+			mods.add(mod.getMetadata().getId() + "@" + mod.getMetadata().getVersion().getFriendlyString());
+		}
+		
+		try {
+			Path versionFile = getLaunchDirectory().resolve("version.txt");
+			byte[] version = Files.exists(versionFile) ? Files.readAllBytes(versionFile) : new byte[0];
+			String key = SharedClassStore.key(version, jars, mods);
+			long start = System.nanoTime();
+			SharedClassStore store = SharedClassStore.open(getLaunchDirectory().resolve("cache").resolve("classes"), key, jars, WildermythGameProvider::modClasses);
+			TRANSFORMER.setClassStore(store);
+			Log.info(LogCategory.GAME_PROVIDER, "Serving " + store.size() + " classes from shared class store " + key + ", opened in " + (System.nanoTime() - start) / 1000000 + "ms");
+		}
+		catch(IOException | RuntimeException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not open shared class store, classes will be read from their jars", e);
+		}
+	}
+	
+	private void indexMixinTargets() {
+		try {
+			long start = System.nanoTime();
+			MixinTargetIndex index = MixinTargetIndex.load(getLaunchDirectory().resolve("cache").resolve("mixin-targets.properties"), FabricLoader.getInstance().getAllMods());
+			TRANSFORMER.widenUntargeted(index::isTargeted);
+			Log.info(LogCategory.GAME_PROVIDER, index.size() + " classes are targeted by mixins, indexed in " + (System.nanoTime() - start) / 1000000 + "ms. Other game classes are widened in place");
+		}
+		catch(IOException | RuntimeException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not index mixin targets, all game classes will take the full transform path", e);
+		}
+	}
+	
+	/**
+	 * @return the binary names of all classes in mods, which come before the game's jars on the classpath
+	 */
+	private static Set<String> modClasses() {
+		Set<String> classes = new HashSet<>();
+		for(ModContainer mod : FabricLoader.getInstance().getAllMods()) {
+			if("builtin".equals(mod.getMetadata().getType())) {
+				continue;
+			}
+			for(Path root : mod.getRootPaths()) {
+				try(Stream<Path> files = Files.walk(root)) {
+					files.forEach(file -> {
+						String name = root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/");
+						if(name.endsWith(".class") && !name.startsWith("META-INF/")) {
+							classes.add(name.substring(0, name.length() - 6).replace('/', '.'));
+						}
+					});
+				}
+				catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return classes;
 	}
 
 	@Override
@@ -437,10 +745,40 @@ public class WildermythGameProvider implements GameProvider {
 
 		String targetClass = entrypoint;
 		
+		if(SETTINGS.metricsEnabled()) {
+			try {
+				MetricsServer server = MetricsServer.start(SETTINGS.getMetricsPort(), STATISTICS);
+				Log.info(LogCategory.GAME_PROVIDER, "Serving metrics at http://127.0.0.1:" + server.getPort() + "/metrics");
+			}
+			catch(IOException e) {
+				Log.warn(LogCategory.GAME_PROVIDER, "Could not start metrics endpoint on port " + SETTINGS.getMetricsPort(), e);
+			}
+		}
+		
+		if(SETTINGS.gcTelemetryEnabled()) {
+			try {
+				GcTelemetry.start(Path.of("logs", "gc.csv"), Thread.currentThread(), SETTINGS.getGcTelemetryIntervalMillis());
+			}
+			catch(IOException e) {
+				Log.warn(LogCategory.GAME_PROVIDER, "Could not start GC telemetry", e);
+			}
+		}
+		
+		if(SETTINGS.stallWatchdogEnabled()) {
+			StallWatchdog.start(Thread.currentThread(), SETTINGS.getStallThresholdMillis());
+		}
+		
+		LogRollover.compressInBackground(Path.of("logs"), SETTINGS.getLogRetentionBytes());
+		
+		if(SETTINGS.assetCacheEnabled()) {
+			System.setProperty(AssetCache.MAX_BYTES_PROPERTY, Long.toString(SETTINGS.getAssetCacheMaxBytes()));
+			System.setProperty(AssetCache.MAP_THRESHOLD_PROPERTY, Long.toString(SETTINGS.getAssetCacheMapThreshold()));
+		}
 		
 		try {
 			Class<?> c = loader.loadClass(targetClass);
 			Method m = c.getMethod("main", String[].class);
+			releaseLaunchState();
 			m.invoke(null, (Object) arguments.toArray());
 		}
 		catch(InvocationTargetException e) {
@@ -452,8 +790,35 @@ public class WildermythGameProvider implements GameProvider {
 		
 	}
 	
+	/**
+	 * Drops what was only needed to find, patch and put the game on the classpath, once the
+	 * entrypoint class is defined, and logs what the provider still holds on to. Patched classes
+	 * Knot defines later are released the second time they are asked for.
+	 */
+	private void releaseLaunchState() {
+		TRANSFORMER.releaseLoaded(); //the entrypoint and everything it loaded are defined by now
+		
+		startup = null;
+		asmMetadata = null;
+		mixinMetadata = null;
+		nativesCache = null;
+		cacheNatives = null;
+		miscGameLibraries.clear();
+		
+		StringBuilder report = new StringBuilder("Released " + TRANSFORMER.getReleasedBytes() / 1024 + "KiB of patched classes by launch. Still held by the provider:");
+		report.append("\n\tpatched classes not yet defined: " + TRANSFORMER.getPatchedClassCount() + " (" + TRANSFORMER.getPatchedClassBytes() / 1024 + "KiB)");
+		report.append("\n\tclass load listeners: " + TRANSFORMER.getClassLoadListenerCount());
+		SharedClassStore store = TRANSFORMER.getClassStore();
+		if(store != null) {
+			report.append("\n\tshared class store: " + store.size() + " classes (" + store.getMappedBytes() / 1024 + "KiB mapped, off heap)");
+		}
+		report.append("\n\tlaunch arguments: " + arguments.toArray().length + " (kept, Fabric can ask for them at any time)");
+		Log.info(LogCategory.GAME_PROVIDER, report.toString());
+	}
+	
 	@Override
 	public boolean displayCrash(Throwable t, String context) {
+		indexCrash(t);
 		try {
 			if(crashLogService != null) {
 				Method logCrash = crashLogService.getClass().getDeclaredMethod("logCrash", Throwable.class);
@@ -465,6 +830,29 @@ public class WildermythGameProvider implements GameProvider {
 		return false;
 	}
 
+	private void indexCrash(Throwable t) {
+		try {
+			String version;
+			try {
+				version = getRawGameVersion();
+			}
+			catch(Throwable versionUnknown) {
+				version = null;
+			}
+			String mods;
+			try {
+				mods = CrashFingerprint.modsHash(FabricLoader.getInstance().getAllMods());
+			}
+			catch(Throwable modsUnknown) {
+				mods = null;
+			}
+			CrashIndex.append(CrashIndex.DEFAULT_FILE, t, version, mods);
+		}
+		catch(Throwable t2) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Could not add crash to " + CrashIndex.DEFAULT_FILE, t2);
+		}
+	}
+
 	@Override
 	public Arguments getArguments() {
 		return arguments;
@@ -543,6 +931,13 @@ public class WildermythGameProvider implements GameProvider {
 	}
 	
 	private StringVersion getGameVersion() {
+		if(gameVersion != null) {
+			return gameVersion.join();
+		}
+		return readGameVersion();
+	}
+	
+	private StringVersion readGameVersion() {
 		Path versionFile = getLaunchDirectory().resolve("version.txt");
 		try {
 			if(Files.exists(versionFile)) {
@@ -558,16 +953,17 @@ public class WildermythGameProvider implements GameProvider {
 	}
 
 	private static final Set<BuiltinTransform> TRANSFORM_WIDENALL_CLASSTWEAKS = EnumSet.of(BuiltinTransform.WIDEN_ALL_PACKAGE_ACCESS, BuiltinTransform.CLASS_TWEAKS);
+	private static final Set<BuiltinTransform> TRANSFORM_CLASSTWEAKS = EnumSet.of(BuiltinTransform.CLASS_TWEAKS);
 	
 	@Override
 	public Set<BuiltinTransform> getBuiltinTransforms(String className) {
-		boolean isWildermythClass = 
-			className.startsWith("com.worldwalkergames.") ||
-			className.startsWith("com.badlogic.gdx.") ||
-			className.startsWith("org.fmod.") ||
-			className.startsWith("com.codedisaster.steamworks.") ||
-			className.startsWith("org.lwjgl.");
-		if(isWildermythClass) {
+		PackageCounters counters = STATISTICS.countersFor(className);
+		counters.queried.increment();
+		if(TRANSFORMER.takeWidened(className)) {
+			return TRANSFORM_CLASSTWEAKS; //access wideners still apply
+		}
+		if(counters.receivesBuiltinTransforms()) {
+			counters.givenBuiltinTransforms.increment();
 			return TRANSFORM_WIDENALL_CLASSTWEAKS;
 		}
 		return Collections.emptySet();
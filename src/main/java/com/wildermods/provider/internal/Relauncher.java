@@ -0,0 +1,154 @@
+package com.wildermods.provider.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Starts a copy of the running game in a new JVM with different JVM options.
+ *
+ * The child gets the same class path, main class and program arguments, and inherits
+ * the standard streams, so to the launcher it looks like the original process.
+ * It is started with {@link #GUARD} set, and a JVM with {@link #GUARD} set never
+ * relaunches, so a profile the child JVM reports differently can't cause a loop.
+ */
+public final class Relauncher {
+
+	public static final String GUARD = "com.wildermods.provider.relaunched";
+
+	private Relauncher() {}
+
+	public static boolean isRelaunched() {
+		return System.getProperty(GUARD) != null;
+	}
+
+	/**
+	 * @return the desired options which the running JVM was not started with
+	 */
+	public static List<String> missing(List<String> desired, List<String> current) {
+		List<String> missing = new ArrayList<>(desired);
+		missing.removeAll(current);
+		return missing;
+	}
+
+	/**
+	 * Runs the game in a new JVM and waits for it to exit.
+	 *
+	 * @param current the options the running JVM was started with
+	 * @param desired the options to add, replacing any current options which set the same thing
+	 * @param args the program arguments
+	 * @return the exit code of the new JVM
+	 */
+	public static int relaunch(List<String> current, List<String> desired, String[] args) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(javaExecutable());
+		command.addAll(merge(current, desired));
+		command.add("-D" + GUARD + "=true");
+		String classPath = System.getProperty("java.class.path");
+		if(classPath != null && !classPath.isEmpty()) {
+			command.add("-cp");
+			command.add(classPath);
+		}
+		String main = mainClass();
+		if(main.endsWith(".jar")) {
+			command.add("-jar");
+		}
+		command.add(main);
+		for(String arg : args) {
+			command.add(arg);
+		}
+
+		Process child = new ProcessBuilder(command).inheritIO().start();
+		Thread killChild = new Thread(child::destroy, "Provider Relaunch Shutdown");
+		Runtime.getRuntime().addShutdownHook(killChild); //if the launcher kills us, take the game down with us
+		int exitCode = child.waitFor();
+		Runtime.getRuntime().removeShutdownHook(killChild);
+		return exitCode;
+	}
+
+	/**
+	 * Replaces current options which set the same thing as a desired option.
+	 */
+	static List<String> merge(List<String> current, List<String> desired) {
+		Set<String> replaced = new HashSet<>();
+		boolean replacesGc = false;
+		for(String option : desired) {
+			replaced.add(key(option));
+			replacesGc |= isGcSelection(option);
+		}
+		List<String> merged = new ArrayList<>();
+		for(String option : current) {
+			if(replaced.contains(key(option)) || (replacesGc && isGcSelection(option)) || key(option).equals("-D" + GUARD)) {
+				continue;
+			}
+			merged.add(option);
+		}
+		merged.addAll(desired);
+		return merged;
+	}
+
+	/**
+	 * @return the part of an option which identifies what it sets, so that
+	 * {@code -Xmx2G} and {@code -Xmx4G}, or {@code -XX:+Foo} and {@code -XX:-Foo}, are the same
+	 */
+	private static String key(String option) {
+		for(String prefix : new String[] {"-Xmx", "-Xms", "-Xss", "-Xmn"}) {
+			if(option.startsWith(prefix)) {
+				return prefix;
+			}
+		}
+		if(option.startsWith("-XX:+") || option.startsWith("-XX:-")) {
+			return "-XX:" + option.substring(5);
+		}
+		int equals = option.indexOf('=');
+		return equals < 0 ? option : option.substring(0, equals);
+	}
+
+	private static boolean isGcSelection(String option) {
+		return option.startsWith("-XX:+Use") && option.endsWith("GC");
+	}
+
+	private static String javaExecutable() {
+		return ProcessHandle.current().info().command().orElseGet(() -> {
+			String executable = System.getProperty("os.name").startsWith("Windows") ? "java.exe" : "java";
+			return System.getProperty("java.home") + File.separator + "bin" + File.separator + executable;
+		});
+	}
+
+	/**
+	 * @return the jar the running JVM was started with {@code -jar}, or else its main class.
+	 * Paths may contain spaces, so the jar comes from the class path, which {@code -jar} sets to
+	 * exactly that jar, and only a main class, which can't contain spaces, is read out of the
+	 * command line.
+	 */
+	static String mainClass() {
+		String classPath = System.getProperty("java.class.path", "");
+		String command = System.getProperty("sun.java.command");
+		if(command != null && !command.isBlank()) {
+			if(isLaunchJar(classPath, command)) {
+				return classPath;
+			}
+			int space = command.indexOf(' ');
+			return space < 0 ? command : command.substring(0, space);
+		}
+		String[] arguments = ProcessHandle.current().info().arguments().orElse(new String[0]);
+		for(int i = 0; i < arguments.length - 1; i++) {
+			if(arguments[i].equals("-jar")) {
+				return arguments[i + 1];
+			}
+		}
+		throw new IllegalStateException("Cannot determine the main class of the running JVM");
+	}
+
+	static boolean isLaunchJar(String classPath, String command) {
+		return !classPath.isEmpty()
+			&& !classPath.contains(File.pathSeparator)
+			&& classPath.toLowerCase(Locale.ROOT).endsWith(".jar")
+			&& (command.equals(classPath) || command.startsWith(classPath + " "));
+	}
+
+}
@@ -0,0 +1,24 @@
+package com.wildermods.provider.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Java 17 implementation. A Java 21+ runtime loads the version in
+ * src/main/java21 instead, which uses virtual threads.
+ */
+final class StartupExecutor {
+
+	private static final int MAX_PARALLELISM = 4;
+
+	static ExecutorService create() {
+		int parallelism = Math.max(1, Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors() - 1));
+		return new ForkJoinPool(parallelism, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("Provider Startup-" + thread.getPoolIndex());
+			return thread;
+		}, null, false);
+	}
+
+}
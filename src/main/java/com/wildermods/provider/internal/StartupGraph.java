@@ -0,0 +1,165 @@
+package com.wildermods.provider.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.log.LogLevel;
+
+/**
+ * Runs independent startup steps concurrently while keeping their observable
+ * behavior identical to running them one after another in declaration order:
+ *
+ * <ul>
+ * <li>Tasks log through a {@link TaskLog} which is buffered and replayed, in the
+ * order the tasks were added, when they are joined.</li>
+ * <li>If several joined tasks fail, the failure of the task added first is the one
+ * rethrown, unwrapped, regardless of which one failed first in time.</li>
+ * </ul>
+ *
+ * The executor comes from {@link StartupExecutor}, which is a small fork-join pool
+ * on Java 17 and is replaced by a virtual thread executor on Java 21+ through
+ * the multi-release jar.
+ */
+public class StartupGraph implements AutoCloseable {
+
+	private final ExecutorService executor = StartupExecutor.create();
+	private final List<Task<?>> tasks = new ArrayList<>();
+
+	public <T> Task<T> add(String name, TaskBody<T> body, Task<?>... dependencies) {
+		Task<T> task = new Task<>(this, tasks.size(), name);
+		CompletableFuture<?>[] depends = new CompletableFuture<?>[dependencies.length];
+		for(int i = 0; i < dependencies.length; i++) {
+			depends[i] = dependencies[i].future;
+		}
+		CompletableFuture.allOf(depends).whenCompleteAsync((ignored, dependencyFailure) -> {
+			if(dependencyFailure != null) {
+				task.future.completeExceptionally(unwrap(dependencyFailure));
+				return;
+			}
+			try {
+				task.future.complete(body.run(task.log));
+			}
+			catch(Throwable t) {
+				task.future.completeExceptionally(t);
+			}
+		}, executor);
+		tasks.add(task);
+		return task;
+	}
+
+	/**
+	 * Waits for all of the given tasks, replays their buffered logs in the order the tasks
+	 * were added, then rethrows the failure of the earliest added task that failed, if any.
+	 */
+	public void join(Task<?>... toJoin) {
+		Task<?>[] ordered = toJoin.clone();
+		Arrays.sort(ordered, Comparator.comparingInt((Task<?> t) -> t.index));
+		for(Task<?> task : ordered) {
+			try {
+				task.future.get();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for startup task " + task.name, e);
+			}
+			catch(ExecutionException e) {
+				//reported below, after all logs have been replayed
+			}
+		}
+		for(Task<?> task : ordered) {
+			task.log.replay();
+		}
+		for(Task<?> task : ordered) {
+			if(task.future.isCompletedExceptionally()) {
+				rethrow(unwrap(task.future.handle((v, t) -> t).join()));
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	private static Throwable unwrap(Throwable t) {
+		while((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+			t = t.getCause();
+		}
+		return t;
+	}
+
+	private static void rethrow(Throwable t) {
+		if(t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if(t instanceof Error) {
+			throw (Error) t;
+		}
+		throw new RuntimeException(t);
+	}
+
+	@FunctionalInterface
+	public static interface TaskBody<T> {
+		public T run(TaskLog log) throws Exception;
+	}
+
+	public static final class Task<T> {
+		private final StartupGraph graph;
+		private final int index;
+		private final String name;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private final TaskLog log = new TaskLog();
+
+		private Task(StartupGraph graph, int index, String name) {
+			this.graph = graph;
+			this.index = index;
+			this.name = name;
+		}
+
+		/**
+		 * Joins this task alone, see {@link StartupGraph#join(Task...)}
+		 */
+		public T join() {
+			graph.join(this);
+			return future.join();
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Collects log lines of a task so they can be emitted in a deterministic order.
+	 */
+	public static final class TaskLog {
+		private final List<Runnable> buffer = new ArrayList<>();
+		private boolean replayed;
+
+		public synchronized void log(LogLevel level, LogCategory category, String message) {
+			if(replayed) {
+				Log.log(level, category, message);
+			}
+			else {
+				buffer.add(() -> Log.log(level, category, message));
+			}
+		}
+
+		private synchronized void replay() {
+			if(!replayed) {
+				replayed = true;
+				buffer.forEach(Runnable::run);
+				buffer.clear();
+			}
+		}
+	}
+
+}
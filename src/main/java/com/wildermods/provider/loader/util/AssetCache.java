@@ -0,0 +1,235 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the contents of asset files the game reads through libGDX's {@code FileHandle}, so
+ * reading the same file again neither goes to disk nor allocates a new buffer for the stream.
+ * {@link com.wildermods.provider.patch.AssetCachePatch} makes {@code FileHandle.read()} and
+ * {@code FileHandle.readBytes()} ask here first.
+ *
+ * Files smaller than the map threshold are held on the heap in a least recently used cache
+ * of bounded total size. Larger {@code Internal} files are memory mapped and left to the OS
+ * page cache. {@code Local} files, such as saves and settings, are rewritten by the game, which
+ * an open mapping would make fail on Windows and truncate under a reader elsewhere, so they are
+ * always held on the heap. Entries
+ * are keyed by file type and path and checked against the file's size and modification time on every read,
+ * so a changed file is read again.
+ *
+ * The limits come from system properties, since the game's class loader may link against a
+ * different copy of this class than the provider.
+ */
+public final class AssetCache {
+
+	public static final String MAX_BYTES_PROPERTY = "com.wildermods.provider.assetCache.maxBytes";
+	public static final String MAP_THRESHOLD_PROPERTY = "com.wildermods.provider.assetCache.mapThreshold";
+
+	private static final long MAX_BYTES = Long.getLong(MAX_BYTES_PROPERTY, 64L * 1024 * 1024);
+	private static final long MAP_THRESHOLD = Long.getLong(MAP_THRESHOLD_PROPERTY, 1024 * 1024);
+	private static final int MAX_MAPPED = 256;
+
+	private static final LinkedHashMap<String, Entry> CACHE = new LinkedHashMap<>(256, 0.75f, true);
+	private static long cachedBytes;
+	private static int mappedFiles;
+
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+
+	private AssetCache() {}
+
+	/**
+	 * @param type the handle's {@code FileType}
+	 * @return a stream over the cached contents, or null if the handle should read the file itself
+	 */
+	public static InputStream read(Enum<?> type, File file) {
+		Entry entry = get(type, file);
+		if(entry == null) {
+			return null;
+		}
+		if(entry.bytes != null) {
+			return new ByteArrayInputStream(entry.bytes);
+		}
+		return new BufferInputStream(entry.mapped.duplicate());
+	}
+
+	/**
+	 * @param type the handle's {@code FileType}
+	 * @return a copy of the cached contents, or null if the handle should read the file itself
+	 */
+	public static byte[] readBytes(Enum<?> type, File file) {
+		Entry entry = get(type, file);
+		if(entry == null) {
+			return null;
+		}
+		if(entry.bytes != null) {
+			return entry.bytes.clone(); //the caller owns the array it gets back
+		}
+		ByteBuffer mapped = entry.mapped.duplicate();
+		byte[] bytes = new byte[mapped.remaining()];
+		mapped.get(bytes);
+		return bytes;
+	}
+
+	public static long getHits() {
+		return HITS.sum();
+	}
+
+	public static long getMisses() {
+		return MISSES.sum();
+	}
+
+	private static Entry get(Enum<?> type, File file) {
+		try {
+			String typeName = type.name();
+			if(!typeName.equals("Internal") && !typeName.equals("Local")) {
+				return null;
+			}
+			Path path = file.toPath();
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			if(!attributes.isRegularFile() || attributes.size() > Integer.MAX_VALUE) {
+				return null;
+			}
+			String key = typeName + ":" + path.toAbsolutePath(); //a mapping made for an Internal file is never handed to a Local read
+			long modified = attributes.lastModifiedTime().toMillis();
+			long size = attributes.size();
+
+			synchronized(CACHE) {
+				Entry entry = CACHE.get(key);
+				if(entry != null && entry.modified == modified && entry.size == size) {
+					HITS.increment();
+					return entry;
+				}
+			}
+			MISSES.increment();
+
+			Entry entry;
+			if(size >= MAP_THRESHOLD && typeName.equals("Internal")) {
+				try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					entry = new Entry(modified, size, null, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+				}
+			}
+			else if(size <= MAX_BYTES) {
+				byte[] bytes = Files.readAllBytes(path);
+				if(bytes.length != size) {
+					return null; //changed while reading
+				}
+				entry = new Entry(modified, size, bytes, null);
+			}
+			else {
+				return null;
+			}
+			put(key, entry);
+			return entry;
+		}
+		catch(IOException | RuntimeException e) {
+			return null; //let libGDX read it and report any problem itself
+		}
+	}
+
+	private static void put(String key, Entry entry) {
+		synchronized(CACHE) {
+			remove(CACHE.put(key, entry));
+			add(entry);
+			Iterator<Entry> eldest = CACHE.values().iterator();
+			while((cachedBytes > MAX_BYTES || mappedFiles > MAX_MAPPED) && eldest.hasNext()) {
+				Entry evicted = eldest.next();
+				if(evicted == entry) {
+					continue;
+				}
+				eldest.remove();
+				remove(evicted);
+			}
+		}
+	}
+
+	private static void add(Entry entry) {
+		if(entry.bytes != null) {
+			cachedBytes += entry.bytes.length;
+		}
+		else {
+			mappedFiles++;
+		}
+	}
+
+	private static void remove(Entry entry) {
+		if(entry == null) {
+			return;
+		}
+		if(entry.bytes != null) {
+			cachedBytes -= entry.bytes.length;
+		}
+		else {
+			mappedFiles--;
+		}
+	}
+
+	private static final class Entry {
+		private final long modified;
+		private final long size;
+		private final byte[] bytes;
+		private final MappedByteBuffer mapped;
+
+		private Entry(long modified, long size, byte[] bytes, MappedByteBuffer mapped) {
+			this.modified = modified;
+			this.size = size;
+			this.bytes = bytes;
+			this.mapped = mapped;
+		}
+	}
+
+	/**
+	 * Reads from a buffer without copying it first.
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if(len == 0) {
+				return 0;
+			}
+			if(!buffer.hasRemaining()) {
+				return -1;
+			}
+			len = Math.min(len, buffer.remaining());
+			buffer.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public long skip(long n) {
+			int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+}
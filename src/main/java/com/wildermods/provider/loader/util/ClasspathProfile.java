@@ -0,0 +1,215 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.wildermods.provider.loader.util.LibraryDeduplicator.Library;
+
+/**
+ * Counts how many classes are loaded from each library jar, and uses the counts of
+ * previous launches to put the busiest jars first on the classpath.
+ *
+ * Reordering never changes which jar a class or resource is loaded from: if two jars
+ * contain the same class or resource, such as a {@code log4j2.xml} or a service file,
+ * the one which was first stays first.
+ */
+public class ClasspathProfile {
+
+	private final Path file;
+	private final Properties previous = new Properties();
+
+	private List<Library> libraries = List.of();
+	private Map<String, Object> packages = Map.of();
+	private AtomicLongArray hits = new AtomicLongArray(0);
+
+	private ClasspathProfile(Path file) {
+		this.file = file;
+	}
+
+	/**
+	 * @param file where the counts are kept between launches. Does not need to exist.
+	 */
+	public static ClasspathProfile load(Path file) throws IOException {
+		ClasspathProfile profile = new ClasspathProfile(file);
+		if(Files.exists(file)) {
+			try(InputStream in = Files.newInputStream(file)) {
+				profile.previous.load(in);
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Orders the given libraries by how many classes were loaded from them in previous
+	 * launches, busiest first. Ties, and jars which have never been seen before, are
+	 * ordered by file name. Jars which share classes or resources keep their relative order.
+	 *
+	 * Afterwards, {@link #hit(String)} attributes classes to these libraries.
+	 *
+	 * @param game the game jar, which stays in front of every library
+	 * @param libraries the libraries in their current classpath order
+	 * @return the libraries in their new order
+	 */
+	public List<Library> order(Library game, List<Library> libraries) {
+		int n = libraries.size();
+		List<List<Integer>> after = new ArrayList<>(n);
+		int[] before = new int[n];
+		Map<String, Integer> classOwners = new HashMap<>();
+		Map<String, Integer> resourceOwners = new HashMap<>();
+		for(int i = 0; i < n; i++) {
+			after.add(new ArrayList<>());
+		}
+		for(int i = 0; i < n; i++) {
+			Set<Integer> owners = new HashSet<>();
+			for(String clazz : libraries.get(i).getClasses()) {
+				owners.add(classOwners.putIfAbsent(clazz, i));
+			}
+			for(String resource : libraries.get(i).getResources()) {
+				owners.add(resourceOwners.putIfAbsent(resource, i));
+			}
+			owners.remove(null);
+			for(int owner : owners) {
+				after.get(owner).add(i);
+				before[i]++;
+			}
+		}
+
+		long[] weight = new long[n];
+		for(int i = 0; i < n; i++) {
+			weight[i] = previousHits(libraries.get(i));
+		}
+		PriorityQueue<Integer> ready = new PriorityQueue<>(Comparator
+			.comparingLong((Integer i) -> -weight[i])
+			.thenComparing((Integer i) -> key(libraries.get(i)))
+			.thenComparingInt((Integer i) -> i));
+		for(int i = 0; i < n; i++) {
+			if(before[i] == 0) {
+				ready.add(i);
+			}
+		}
+		List<Library> ordered = new ArrayList<>(n);
+		while(!ready.isEmpty()) {
+			int i = ready.poll();
+			ordered.add(libraries.get(i));
+			for(int next : after.get(i)) {
+				if(--before[next] == 0) {
+					ready.add(next);
+				}
+			}
+		}
+
+		index(game, ordered);
+		return ordered;
+	}
+
+	/**
+	 * Counts a class load against the jar it is loaded from, if that jar is one of the libraries
+	 * passed to {@link #order(Library, List)}.
+	 *
+	 * @param className the binary name of the class
+	 */
+	public void hit(String className) {
+		int dot = className.lastIndexOf('.');
+		Object owner = packages.get(dot < 0 ? "" : className.substring(0, dot));
+		if(owner instanceof Map) {
+			owner = ((Map<?, ?>) owner).get(className);
+		}
+		if(owner != null) {
+			hits.incrementAndGet((Integer) owner);
+		}
+	}
+
+	/**
+	 * Writes the counts of this launch, blended with those of previous launches, so that
+	 * a single short or unusual session does not reorder the classpath on its own.
+	 */
+	public void save() throws IOException {
+		Properties counts = new Properties();
+		for(int i = 0; i < libraries.size(); i++) {
+			Library library = libraries.get(i);
+			counts.setProperty(key(library), Long.toString(previousHits(library) / 2 + hits.get(i)));
+		}
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(OutputStream out = Files.newOutputStream(temp)) {
+			counts.store(out, "Classes loaded per library jar, used to order the classpath");
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Maps every package to the jar its classes are loaded from. Only packages which are
+	 * split across jars are mapped class by class, which keeps the index small.
+	 */
+	private void index(Library game, List<Library> ordered) {
+		List<Library> classpath = new ArrayList<>(ordered.size() + 1);
+		classpath.add(game); //classes loaded from the game jar are not counted against any library
+		classpath.addAll(ordered);
+
+		Map<String, Integer> owners = new HashMap<>();
+		Map<String, Integer> packageOwners = new HashMap<>();
+		for(int i = 0; i < classpath.size(); i++) {
+			Library library = classpath.get(i);
+			if(library == null) {
+				continue;
+			}
+			for(String clazz : library.getClasses()) {
+				String name = clazz.replace('/', '.');
+				if(owners.putIfAbsent(name, i) == null) {
+					int dot = name.lastIndexOf('.');
+					packageOwners.merge(dot < 0 ? "" : name.substring(0, dot), i, (a, b) -> a.equals(b) ? a : -1);
+				}
+			}
+		}
+
+		Map<String, Object> packages = new HashMap<>();
+		for(Map.Entry<String, Integer> owner : owners.entrySet()) {
+			String name = owner.getKey();
+			int dot = name.lastIndexOf('.');
+			String pkg = dot < 0 ? "" : name.substring(0, dot);
+			int packageOwner = packageOwners.get(pkg);
+			if(packageOwner >= 0) {
+				if(packageOwner > 0) {
+					packages.put(pkg, packageOwner - 1);
+				}
+			}
+			else if(owner.getValue() > 0) {
+				@SuppressWarnings("unchecked")
+				Map<String, Integer> classes = (Map<String, Integer>) packages.computeIfAbsent(pkg, p -> new HashMap<String, Integer>());
+				classes.put(name, owner.getValue() - 1);
+			}
+		}
+
+		this.libraries = ordered;
+		this.packages = packages;
+		this.hits = new AtomicLongArray(ordered.size());
+	}
+
+	private long previousHits(Library library) {
+		try {
+			return Long.parseLong(previous.getProperty(key(library), "0"));
+		}
+		catch(NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	private static String key(Library library) {
+		return library.getPath().getFileName().toString();
+	}
+
+}
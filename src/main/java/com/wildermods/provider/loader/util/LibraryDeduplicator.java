@@ -0,0 +1,371 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+import com.wildermods.provider.internal.StartupGraph.TaskLog;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.log.LogLevel;
+
+/**
+ * Finds jars on the game's classpath which are copies or different versions of the same library.
+ *
+ * Jars are identified by their Maven {@code pom.properties}, falling back to their manifest
+ * and then their file name. Two jars only conflict if they share an identity <i>and</i> contain
+ * some of the same classes, so split artifacts such as natives jars are never collapsed
+ * into the jar they belong to.
+ */
+public class LibraryDeduplicator {
+
+	private static final Pattern VERSIONED_NAME = Pattern.compile("^(.+?)-(\\d[^-]*(?:-.+)?)$");
+	private static final int MAX_REPORTED_COLLISIONS = 3;
+
+	public static enum Policy {
+		/**
+		 * Of several versions of a library, keep the one with the highest version
+		 */
+		NEWEST,
+		/**
+		 * Of several versions of a library, keep the one which comes first on the classpath
+		 */
+		FIRST,
+		/**
+		 * Keep every version of a library. Identical copies are still removed.
+		 */
+		KEEP_ALL
+	}
+
+	/**
+	 * Reads the identity, class and resource entries of a jar. Only the zip central directory, the
+	 * manifest and {@code pom.properties} files are read.
+	 *
+	 * @return the scanned library, or an opaque library if the jar could not be read,
+	 * which is never deduplicated
+	 */
+	public static Library scan(Path jar, TaskLog log) {
+		try(JarFile zip = new JarFile(jar.toFile(), false)) {
+			List<ZipEntry> entries = new ArrayList<>();
+			Set<String> classes = new HashSet<>();
+			Set<String> resources = new HashSet<>();
+			Properties pom = null;
+			int poms = 0;
+			Enumeration<? extends ZipEntry> e = zip.entries();
+			while(e.hasMoreElements()) {
+				ZipEntry entry = e.nextElement();
+				String name = entry.getName();
+				entries.add(entry);
+				if(name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class") && !name.endsWith("package-info.class")) {
+					classes.add(name.substring(0, name.length() - 6));
+				}
+				else if(name.startsWith("META-INF/maven/") && name.endsWith("/pom.properties")) {
+					if(poms++ == 0) {
+						pom = new Properties();
+						try(InputStream in = zip.getInputStream(entry)) {
+							pom.load(in);
+						}
+					}
+				}
+				else if(!entry.isDirectory() && !isJarMetadata(name)) {
+					resources.add(name);
+				}
+			}
+
+			String artifact = null;
+			String version = null;
+			if(poms == 1 && pom.getProperty("artifactId") != null) { //shaded jars contain the pom of everything they shade
+				artifact = pom.getProperty("groupId", "") + ":" + pom.getProperty("artifactId");
+				version = pom.getProperty("version");
+			}
+			Manifest manifest = zip.getManifest();
+			if(manifest != null) {
+				Attributes main = manifest.getMainAttributes();
+				if(artifact == null) {
+					artifact = first(main.getValue("Automatic-Module-Name"), bundleName(main.getValue("Bundle-SymbolicName")));
+				}
+				if(version == null) {
+					version = first(main.getValue("Implementation-Version"), main.getValue("Bundle-Version"));
+				}
+			}
+			String fileName = jar.getFileName().toString();
+			if(fileName.endsWith(".jar")) {
+				fileName = fileName.substring(0, fileName.length() - 4);
+			}
+			Matcher m = VERSIONED_NAME.matcher(fileName);
+			if(artifact == null) {
+				artifact = m.matches() ? m.group(1) : fileName;
+			}
+			if(version == null && m.matches()) {
+				version = m.group(2);
+			}
+
+			return new Library(jar, artifact, version, fingerprint(entries), classes, resources);
+		}
+		catch(IOException e) {
+			log.log(LogLevel.WARN, LogCategory.GAME_PROVIDER, "Could not scan " + jar + " for duplicate classes: " + e);
+			return new Library(jar, null, null, null, Collections.emptySet(), Collections.emptySet());
+		}
+	}
+
+	/**
+	 * Removes duplicate libraries from the classpath and logs what was removed, along
+	 * with any classes which are still provided by more than one jar.
+	 *
+	 * @param game the game jar, which always comes first on the classpath and is never removed
+	 * @param libraries the libraries in classpath order
+	 * @return the libraries to keep, in classpath order
+	 */
+	public static List<Library> deduplicate(Library game, List<Library> libraries, Policy policy) {
+		List<Library> kept = new ArrayList<>(libraries);
+
+		Map<String, Library> byFingerprint = new HashMap<>();
+		for(Library library : libraries) {
+			if(library.fingerprint == null) {
+				continue;
+			}
+			Library original = byFingerprint.putIfAbsent(library.fingerprint, library);
+			if(original != null) {
+				kept.remove(library);
+				Log.info(LogCategory.GAME_PROVIDER, "Removing " + library.path + " from the classpath, it is identical to " + original.path);
+			}
+		}
+
+		if(policy != Policy.KEEP_ALL) {
+			Map<String, List<Library>> byArtifact = new LinkedHashMap<>();
+			for(Library library : kept) {
+				if(library.artifact != null && !library.classes.isEmpty()) {
+					byArtifact.computeIfAbsent(library.artifact, a -> new ArrayList<>()).add(library);
+				}
+			}
+			for(List<Library> versions : byArtifact.values()) {
+				while(versions.size() > 1) {
+					Library winner = versions.get(0);
+					List<Library> conflicting = new ArrayList<>();
+					for(Library other : versions.subList(1, versions.size())) {
+						if(!Collections.disjoint(winner.classes, other.classes)) {
+							conflicting.add(other);
+						}
+					}
+					versions.remove(0);
+					versions.removeAll(conflicting);
+					for(Library other : conflicting) {
+						Library loser = other;
+						if(policy == Policy.NEWEST && compareVersions(other.version, winner.version) > 0) {
+							loser = winner;
+							winner = other;
+						}
+						kept.remove(loser);
+						Log.warn(LogCategory.GAME_PROVIDER, "Removing " + loser.path + " (" + loser.artifact + " " + loser.version + ") from the classpath, it conflicts with " + winner.path + " (" + winner.version + ")");
+					}
+				}
+			}
+		}
+
+		reportCollisions(game, kept);
+
+		return kept;
+	}
+
+	private static void reportCollisions(Library game, List<Library> libraries) {
+		List<Library> classpath = new ArrayList<>(libraries.size() + 1);
+		if(game != null) {
+			classpath.add(game);
+		}
+		classpath.addAll(libraries);
+
+		Map<String, Library> owners = new HashMap<>();
+		Map<Library, Map<Library, List<String>>> collisions = new LinkedHashMap<>();
+		for(Library library : classpath) {
+			for(String clazz : library.classes) {
+				Library owner = owners.putIfAbsent(clazz, library);
+				if(owner != null) {
+					collisions.computeIfAbsent(owner, o -> new LinkedHashMap<>()).computeIfAbsent(library, l -> new ArrayList<>()).add(clazz);
+				}
+			}
+		}
+
+		for(Map.Entry<Library, Map<Library, List<String>>> owner : collisions.entrySet()) {
+			for(Map.Entry<Library, List<String>> shadowed : owner.getValue().entrySet()) {
+				List<String> classes = shadowed.getValue();
+				Collections.sort(classes);
+				Log.warn(LogCategory.GAME_PROVIDER, shadowed.getKey().path.getFileName() + " contains " + classes.size() + " classes which are shadowed by "
+					+ owner.getKey().path.getFileName() + ", such as " + String.join(", ", classes.subList(0, Math.min(MAX_REPORTED_COLLISIONS, classes.size()))).replace('/', '.'));
+			}
+		}
+	}
+
+	/**
+	 * Compares version strings the way most Java libraries number them: numeric parts
+	 * numerically, and a release is newer than its qualified builds ({@code 1.0 > 1.0-beta}).
+	 * A missing version is older than any version.
+	 */
+	public static int compareVersions(String a, String b) {
+		if(a == null || b == null) {
+			return a == null ? (b == null ? 0 : -1) : 1;
+		}
+		String[] as = a.split("[.\\-+_]");
+		String[] bs = b.split("[.\\-+_]");
+		for(int i = 0; i < Math.max(as.length, bs.length); i++) {
+			String x = i < as.length ? as[i] : null;
+			String y = i < bs.length ? bs[i] : null;
+			if(x == null) {
+				return isNumber(y) ? -1 : 1;
+			}
+			if(y == null) {
+				return isNumber(x) ? 1 : -1;
+			}
+			int c;
+			if(isNumber(x) && isNumber(y)) {
+				c = Long.compare(Long.parseLong(x), Long.parseLong(y));
+			}
+			else if(isNumber(x) != isNumber(y)) {
+				c = isNumber(x) ? 1 : -1;
+			}
+			else {
+				c = x.compareToIgnoreCase(y);
+			}
+			if(c != 0) {
+				return c;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean isNumber(String s) {
+		if(s.isEmpty() || s.length() > 18) {
+			return false;
+		}
+		for(int i = 0; i < s.length(); i++) {
+			if(!Character.isDigit(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Hashes the name, CRC and size of every entry, which identifies the contents of a jar
+	 * without reading them, regardless of the order or compression of its entries.
+	 */
+	private static String fingerprint(List<ZipEntry> entries) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		ZipEntry[] sorted = entries.toArray(new ZipEntry[0]);
+		Arrays.sort(sorted, (x, y) -> x.getName().compareTo(y.getName()));
+		ByteBuffer numbers = ByteBuffer.allocate(16);
+		for(ZipEntry entry : sorted) {
+			digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+			numbers.clear();
+			numbers.putLong(entry.getCrc()).putLong(entry.getSize()).flip();
+			digest.update(numbers);
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for(byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private static String bundleName(String symbolicName) {
+		if(symbolicName == null) {
+			return null;
+		}
+		int directives = symbolicName.indexOf(';');
+		return (directives < 0 ? symbolicName : symbolicName.substring(0, directives)).trim();
+	}
+
+	/**
+	 * @return true for entries every jar may have which are never looked up through the classpath
+	 * by name, such as the manifest and signatures
+	 */
+	private static boolean isJarMetadata(String name) {
+		if(name.equals(JarFile.MANIFEST_NAME) || name.startsWith("META-INF/maven/") || name.endsWith("module-info.class")) {
+			return true;
+		}
+		if(name.startsWith("META-INF/") && name.indexOf('/', 9) < 0) {
+			String upper = name.toUpperCase(Locale.ROOT);
+			return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC") || upper.startsWith("META-INF/SIG-");
+		}
+		return false;
+	}
+
+	private static String first(String a, String b) {
+		return a != null ? a : b;
+	}
+
+	public static final class Library {
+		private final Path path;
+		private final String artifact;
+		private final String version;
+		private final String fingerprint;
+		private final Set<String> classes;
+		private final Set<String> resources;
+
+		private Library(Path path, String artifact, String version, String fingerprint, Set<String> classes, Set<String> resources) {
+			this.path = path;
+			this.artifact = artifact;
+			this.version = version;
+			this.fingerprint = fingerprint;
+			this.classes = classes;
+			this.resources = resources;
+		}
+
+		public Path getPath() {
+			return path;
+		}
+
+		public String getArtifact() {
+			return artifact;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return the internal names of the classes in this jar
+		 */
+		public Set<String> getClasses() {
+			return classes;
+		}
+
+		/**
+		 * @return the names of the entries in this jar which are neither classes nor directories,
+		 * such as {@code log4j2.xml}, {@code META-INF/services/*} and assets. The manifest,
+		 * signatures and maven metadata are left out.
+		 */
+		public Set<String> getResources() {
+			return resources;
+		}
+	}
+
+}
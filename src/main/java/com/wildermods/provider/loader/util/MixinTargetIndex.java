@@ -0,0 +1,252 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import net.fabricmc.loader.api.ModContainer;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * The names of the classes targeted by the mixins declared in the mixin configs of the loaded mods.
+ *
+ * Mods are read in parallel. The ids and versions of the loaded mods and the size and modification
+ * time of every declared mixin class make up the cache key, so the mixin classes themselves are
+ * only read again when a mod or one of its mixins is added, removed or changed. Mixins added at
+ * runtime by a config plugin are not seen, so this is a lower bound of what mixins may target.
+ */
+public class MixinTargetIndex {
+
+	private static final String MIXIN = "Lorg/spongepowered/asm/mixin/Mixin;";
+	private static final String[] MIXIN_LISTS = {"mixins", "client", "server"};
+	private static final String KEY = "mods";
+	private static final String TARGETS = "targets";
+
+	private final Set<String> targets;
+
+	private MixinTargetIndex(Set<String> targets) {
+		this.targets = targets;
+	}
+
+	/**
+	 * @param cacheFile where the index is kept between launches. Does not need to exist.
+	 */
+	public static MixinTargetIndex load(Path cacheFile, Collection<ModContainer> mods) throws IOException {
+		List<List<Path>> declared;
+		try {
+			declared = mods.parallelStream().map(MixinTargetIndex::mixinClasses).collect(Collectors.toList());
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		List<Path> mixins = new ArrayList<>();
+		for(List<Path> classes : declared) {
+			mixins.addAll(classes);
+		}
+
+		String key = key(mods, mixins);
+		if(Files.exists(cacheFile)) {
+			Properties cached = new Properties();
+			try(InputStream in = Files.newInputStream(cacheFile)) {
+				cached.load(in);
+			}
+			if(key.equals(cached.getProperty(KEY))) {
+				Set<String> targets = new HashSet<>();
+				for(String target : cached.getProperty(TARGETS, "").split(",")) {
+					if(!target.isEmpty()) {
+						targets.add(target);
+					}
+				}
+				return new MixinTargetIndex(targets);
+			}
+		}
+
+		long start = System.nanoTime();
+		Set<String> targets;
+		try {
+			targets = mixins.parallelStream().flatMap(mixin -> targets(mixin).stream()).collect(Collectors.toSet());
+		}
+		catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+		save(cacheFile, key, targets);
+		Log.debug(LogCategory.GAME_PROVIDER, "Indexed " + targets.size() + " mixin targets of " + mixins.size() + " mixins in " + (System.nanoTime() - start) / 1000000 + "ms");
+		return new MixinTargetIndex(targets);
+	}
+
+	/**
+	 * @param className the binary name of a class
+	 * @return true if a mixin declared in a mixin config targets the class
+	 */
+	public boolean isTargeted(String className) {
+		return targets.contains(className);
+	}
+
+	public int size() {
+		return targets.size();
+	}
+
+	/**
+	 * @return the class files of the mixins declared by every mixin config of the mod
+	 */
+	private static List<Path> mixinClasses(ModContainer mod) {
+		List<Path> classes = new ArrayList<>();
+		for(Path root : mod.getRootPaths()) {
+			JsonObject modJson = readJson(root.resolve("fabric.mod.json"));
+			if(modJson == null || !modJson.has("mixins")) {
+				continue;
+			}
+			for(JsonElement entry : modJson.getAsJsonArray("mixins")) {
+				String configName = entry.isJsonObject() ? entry.getAsJsonObject().get("config").getAsString() : entry.getAsString();
+				JsonObject config = readJson(root.resolve(configName));
+				if(config == null || !config.has("package")) {
+					continue;
+				}
+				String mixinPackage = config.get("package").getAsString();
+				for(String list : MIXIN_LISTS) {
+					if(!config.has(list)) {
+						continue;
+					}
+					for(JsonElement mixin : config.getAsJsonArray(list)) {
+						Path file = root.resolve((mixinPackage + "." + mixin.getAsString()).replace('.', '/') + ".class");
+						if(Files.isRegularFile(file)) {
+							classes.add(file);
+						}
+					}
+				}
+			}
+		}
+		return classes;
+	}
+
+	private static JsonObject readJson(Path file) {
+		if(!Files.isRegularFile(file)) {
+			return null;
+		}
+		try(Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			JsonElement json = JsonParser.parseReader(reader);
+			return json.isJsonObject() ? json.getAsJsonObject() : null;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		catch(RuntimeException e) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Could not read " + file + " while indexing mixin targets", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return the classes named in the {@code @Mixin} annotation of the mixin class
+	 */
+	private static Set<String> targets(Path mixin) {
+		Set<String> targets = new HashSet<>();
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(mixin);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM9) {
+			@Override
+			public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+				if(!descriptor.equals(MIXIN)) {
+					return null;
+				}
+				return new AnnotationVisitor(Opcodes.ASM9) {
+					@Override
+					public AnnotationVisitor visitArray(String name) {
+						return new AnnotationVisitor(Opcodes.ASM9) {
+							@Override
+							public void visit(String ignored, Object value) {
+								if(value instanceof Type) {
+									targets.add(((Type) value).getClassName());
+								}
+								else if(value instanceof String) {
+									targets.add(((String) value).replace('/', '.'));
+								}
+							}
+						};
+					}
+				};
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return targets;
+	}
+
+	private static void save(Path cacheFile, String key, Set<String> targets) {
+		Properties properties = new Properties();
+		properties.setProperty(KEY, key);
+		properties.setProperty(TARGETS, String.join(",", targets));
+		try {
+			Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+			Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp)) {
+				properties.store(out, "Classes targeted by mixins, see " + MixinTargetIndex.class.getName());
+			}
+			Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(IOException e) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Could not save mixin target index to " + cacheFile, e);
+		}
+	}
+
+	private static String key(Collection<ModContainer> mods, List<Path> mixins) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		List<String> modIds = new ArrayList<>();
+		for(ModContainer mod : mods) {
+			modIds.add(mod.getMetadata().getId() + "@" + mod.getMetadata().getVersion().getFriendlyString());
+		}
+		modIds.sort(null);
+		for(String mod : modIds) {
+			digest.update((mod + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		List<String> stamps = new ArrayList<>(mixins.size());
+		for(Path mixin : mixins) {
+			stamps.add(mixin + "|" + Files.size(mixin) + "|" + Files.getLastModifiedTime(mixin).toMillis());
+		}
+		stamps.sort(null);
+		for(String stamp : stamps) {
+			digest.update((stamp + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for(byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+}
@@ -0,0 +1,392 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.wildermods.provider.internal.StartupGraph.TaskLog;
+
+import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.log.LogLevel;
+
+/**
+ * A persistent cache of the native libraries shipped inside the game's library jars.
+ *
+ * Every library is stored at {@code <root>/<sha-256 of its contents>/<file name>}, so
+ * a library is only ever written once, and two different builds of a library with
+ * the same name never overwrite each other. Extraction writes to a temporary file
+ * and atomically moves it into place, so concurrent launches and crashes mid-write
+ * never leave a truncated library behind.
+ *
+ * LWJGL only searches a single directory, so the libraries a launch uses are linked
+ * (or copied, where links aren't supported) into {@code <root>/sets/<sha-256 of the set>},
+ * which is built next to the cache and moved into place once complete.
+ *
+ * Other instances may be running with libraries and sets this launch doesn't use, so
+ * only entries no launch has used for {@link #UNUSED_ENTRY_AGE} are pruned. Entries in use
+ * have their modification time refreshed every launch.
+ */
+public class NativeLibraryCache {
+
+	public static final String LWJGL_LIBRARY_PATH = "org.lwjgl.librarypath";
+	public static final String LWJGL_EXTRACT_PATH = "org.lwjgl.system.SharedLibraryExtractPath";
+
+	private static final String TEMP_PREFIX = "extract-";
+	private static final String SETS = "sets";
+	private static final long STALE_TEMP_AGE = TimeUnit.HOURS.toMillis(1);
+	private static final long UNUSED_ENTRY_AGE = TimeUnit.DAYS.toMillis(7);
+	private static final String[] ARCHITECTURES = {"x86", "i386", "x64", "x86_64", "amd64", "arm32", "arm", "arm64", "aarch64"};
+
+	private final Path root;
+	private final OS os;
+	private final Set<String> architecture;
+	private Path launchSet;
+
+	public NativeLibraryCache(Path root) {
+		this(root, OS.getOS(), System.getProperty("os.arch"));
+	}
+
+	public NativeLibraryCache(Path root, OS os, String arch) {
+		this.root = root;
+		this.os = os;
+		this.architecture = architectureAliases(arch);
+	}
+
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Makes sure every native library for this platform inside the given jar is present
+	 * in the cache. Libraries which are already cached are only read, to hash them.
+	 *
+	 * @return the cached location of each library, in the order they appear in the jar.
+	 * If the jar cannot be read, the libraries cached before the error are returned.
+	 */
+	public List<Path> extract(Path jar, TaskLog log) {
+		List<Path> libraries = new ArrayList<>();
+		try(ZipFile zip = new ZipFile(jar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while(entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if(entry.isDirectory() || !isNativeLibrary(entry.getName())) {
+					continue;
+				}
+				String name = fileName(entry.getName());
+				Path target = root.resolve(hash(zip, entry)).resolve(name);
+				if(Files.exists(target) && (entry.getSize() < 0 || Files.size(target) == entry.getSize())) {
+					log.log(LogLevel.TRACE, LogCategory.GAME_PROVIDER, "Using cached native " + target + " for " + entry.getName() + " in " + jar.getFileName());
+				}
+				else {
+					store(zip, entry, target);
+					log.log(LogLevel.DEBUG, LogCategory.GAME_PROVIDER, "Cached native " + entry.getName() + " from " + jar.getFileName() + " at " + target);
+				}
+				libraries.add(target);
+			}
+		}
+		catch(IOException e) {
+			log.log(LogLevel.WARN, LogCategory.GAME_PROVIDER, "Could not cache natives of " + jar + ": " + e);
+		}
+		return libraries;
+	}
+
+	/**
+	 * Points LWJGL at a directory holding the given libraries. Properties the user already set
+	 * are left alone.
+	 *
+	 * @param libraries the cached libraries, in the order they should be searched. Where two
+	 * libraries have the same file name, the first one is used.
+	 */
+	public void publish(Collection<Path> libraries) throws IOException {
+		if(System.getProperty(LWJGL_LIBRARY_PATH) == null && !libraries.isEmpty()) {
+			launchSet = linkSet(libraries);
+			System.setProperty(LWJGL_LIBRARY_PATH, launchSet.toString());
+		}
+		if(System.getProperty(LWJGL_EXTRACT_PATH) == null) {
+			Path extractPath = root.resolve("lwjgl").toAbsolutePath();
+			Files.createDirectories(extractPath);
+			System.setProperty(LWJGL_EXTRACT_PATH, extractPath.toString());
+		}
+	}
+
+	/**
+	 * @return the directory LWJGL was pointed at by {@link #publish(Collection)}, or null if it
+	 * wasn't
+	 */
+	public Path getLaunchSet() {
+		return launchSet;
+	}
+
+	/**
+	 * Removes cached libraries and library sets which no launch has used for a while, and
+	 * temporary files abandoned by extractions which never finished. The given libraries
+	 * and the set published by this launch are kept and marked as used. Entries which cannot
+	 * be deleted, because another running instance has them loaded for example, are skipped.
+	 *
+	 * @return the number of entries removed
+	 */
+	public int prune(Collection<Path> inUse) throws IOException {
+		if(!Files.isDirectory(root)) {
+			return 0;
+		}
+		Set<Path> keep = new HashSet<>();
+		for(Path library : inUse) {
+			keep.add(library.toAbsolutePath().getParent());
+		}
+		if(launchSet != null) {
+			keep.add(launchSet.toAbsolutePath());
+		}
+		FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+		for(Path entry : keep) {
+			try {
+				Files.setLastModifiedTime(entry, now);
+			}
+			catch(IOException e) {
+				//pruned by another instance, extracted again next launch
+			}
+		}
+		int removed = prune(root, keep);
+		Path sets = root.resolve(SETS);
+		if(Files.isDirectory(sets)) {
+			removed += prune(sets, keep);
+		}
+		return removed;
+	}
+
+	private static int prune(Path directory, Set<Path> keep) throws IOException {
+		int removed = 0;
+		long staleBefore = System.currentTimeMillis() - STALE_TEMP_AGE;
+		long unusedBefore = System.currentTimeMillis() - UNUSED_ENTRY_AGE;
+		try(DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+			for(Path child : children) {
+				String name = child.getFileName().toString();
+				try {
+					if(name.startsWith(TEMP_PREFIX)) {
+						if(Files.getLastModifiedTime(child).toMillis() < staleBefore) {
+							delete(child);
+							removed++;
+						}
+					}
+					else if(isHash(name) && !keep.contains(child.toAbsolutePath()) && Files.getLastModifiedTime(child).toMillis() < unusedBefore) {
+						delete(child);
+						removed++;
+					}
+				}
+				catch(IOException e) {
+					//in use, try again next launch
+				}
+			}
+		}
+		return removed;
+	}
+
+	public boolean isNativeLibrary(String entryName) {
+		String name = entryName.toLowerCase(Locale.ROOT);
+		switch(os) {
+			case WINDOWS:
+				if(!name.endsWith(".dll")) {
+					return false;
+				}
+				break;
+			case MAC:
+				if(!name.endsWith(".dylib") && !name.endsWith(".jnilib")) {
+					return false;
+				}
+				break;
+			case LINUX:
+				if(!name.endsWith(".so")) {
+					return false;
+				}
+				break;
+			default:
+				if(!name.endsWith(".so") && !name.endsWith(".dll") && !name.endsWith(".dylib") && !name.endsWith(".jnilib")) {
+					return false;
+				}
+		}
+		boolean anyArchitecture = false;
+		for(String segment : name.split("/")) {
+			for(String arch : ARCHITECTURES) {
+				if(segment.equals(arch)) {
+					if(architecture.contains(arch)) {
+						return true;
+					}
+					anyArchitecture = true;
+				}
+			}
+		}
+		return !anyArchitecture;
+	}
+
+	private void store(ZipFile zip, ZipEntry entry, Path target) throws IOException {
+		Files.createDirectories(target.getParent());
+		Path temp = Files.createTempFile(root, TEMP_PREFIX, ".tmp");
+		try {
+			try(InputStream in = zip.getInputStream(entry); OutputStream out = Files.newOutputStream(temp)) {
+				in.transferTo(out);
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch(FileAlreadyExistsException e) {
+				//another launch cached the same library first
+			}
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * @return the set directory holding the given libraries, built if no launch has needed
+	 * the same set before
+	 */
+	private Path linkSet(Collection<Path> libraries) throws IOException {
+		Map<String, Path> byName = new LinkedHashMap<>();
+		MessageDigest digest = sha256();
+		for(Path library : libraries) {
+			String name = library.getFileName().toString();
+			if(byName.putIfAbsent(name, library.toAbsolutePath()) == null) {
+				digest.update((library.getParent().getFileName() + "/" + name + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		Path set = root.resolve(SETS).resolve(hex(digest.digest())).toAbsolutePath();
+		if(Files.isDirectory(set)) {
+			return set;
+		}
+		Files.createDirectories(set.getParent());
+		Path temp = Files.createTempDirectory(set.getParent(), TEMP_PREFIX);
+		try {
+			for(Map.Entry<String, Path> library : byName.entrySet()) {
+				Path link = temp.resolve(library.getKey());
+				try {
+					Files.createLink(link, library.getValue());
+				}
+				catch(IOException | UnsupportedOperationException e) {
+					Files.copy(library.getValue(), link);
+				}
+			}
+			try {
+				Files.move(temp, set, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(FileAlreadyExistsException | DirectoryNotEmptyException e) {
+				//another launch built the same set first
+			}
+		}
+		finally {
+			if(Files.exists(temp)) {
+				delete(temp);
+			}
+		}
+		return set;
+	}
+
+	private static String hash(ZipFile zip, ZipEntry entry) throws IOException {
+		MessageDigest digest = sha256();
+		try(InputStream in = new DigestInputStream(zip.getInputStream(entry), digest)) {
+			in.transferTo(OutputStream.nullOutputStream());
+		}
+		return hex(digest.digest());
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private static void delete(Path path) throws IOException {
+		if(Files.isDirectory(path)) {
+			try(DirectoryStream<Path> children = Files.newDirectoryStream(path)) {
+				for(Path child : children) {
+					Files.delete(child);
+				}
+			}
+		}
+		Files.delete(path);
+	}
+
+	private static String fileName(String entryName) {
+		return entryName.substring(entryName.lastIndexOf('/') + 1);
+	}
+
+	private static boolean isHash(String name) {
+		if(name.length() != 64) {
+			return false;
+		}
+		for(int i = 0; i < name.length(); i++) {
+			if(Character.digit(name.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Set<String> architectureAliases(String arch) {
+		Set<String> aliases = new HashSet<>();
+		switch(arch == null ? "" : arch.toLowerCase(Locale.ROOT)) {
+			case "amd64":
+			case "x86_64":
+			case "x64":
+				aliases.add("x64");
+				aliases.add("x86_64");
+				aliases.add("amd64");
+				break;
+			case "x86":
+			case "i386":
+			case "i686":
+				aliases.add("x86");
+				aliases.add("i386");
+				break;
+			case "aarch64":
+			case "arm64":
+				aliases.add("arm64");
+				aliases.add("aarch64");
+				break;
+			case "arm":
+			case "arm32":
+				aliases.add("arm32");
+				aliases.add("arm");
+				break;
+		}
+		return aliases;
+	}
+
+}
@@ -0,0 +1,230 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Pulls jars into the OS page cache ahead of the class loader.
+ *
+ * Each jar is memory mapped and its pages are touched from a background thread. The classes
+ * recorded during the previous launch are read first, in the order they were loaded then,
+ * followed by the rest of every jar. Class loading never waits on read-ahead, at worst both
+ * end up reading the same page.
+ */
+public class ReadAhead implements Runnable {
+
+	public static final int MAX_RECORDED = 32768;
+
+	private static final int PAGE = 4096;
+	private static final int CENTRAL_DIRECTORY = 0x02014b50;
+	private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+	private static final int LOCAL_HEADER_SIZE = 30;
+
+	private final List<Path> jars;
+	private final Path sequenceFile;
+	private final List<String> recorded = new ArrayList<>();
+	private volatile boolean recording = true;
+	private volatile int sink;
+
+	private ReadAhead(List<Path> jars, Path sequenceFile) {
+		this.jars = jars;
+		this.sequenceFile = sequenceFile;
+	}
+
+	/**
+	 * Starts reading ahead on a daemon thread.
+	 *
+	 * @param gameJar always read
+	 * @param libraries read largest first until {@code maxBytes} is reached
+	 * @param sequenceFile where the class load order is kept between launches
+	 */
+	public static ReadAhead start(Path gameJar, List<Path> libraries, long maxBytes, Path sequenceFile) {
+		List<Path> bySize = new ArrayList<>(libraries);
+		Map<Path, Long> sizes = new HashMap<>();
+		for(Path library : libraries) {
+			sizes.put(library, size(library));
+		}
+		bySize.sort((a, b) -> Long.compare(sizes.get(b), sizes.get(a)));
+
+		List<Path> jars = new ArrayList<>();
+		jars.add(gameJar);
+		long budget = maxBytes - size(gameJar);
+		for(Path library : bySize) {
+			if(sizes.get(library) <= budget) {
+				jars.add(library);
+				budget -= sizes.get(library);
+			}
+		}
+
+		ReadAhead readAhead = new ReadAhead(jars, sequenceFile);
+		Thread thread = new Thread(readAhead, "Provider Read Ahead");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+		return readAhead;
+	}
+
+	/**
+	 * Records that a class was loaded, so the next launch can read it ahead in the same order.
+	 *
+	 * @param className the binary name of the class
+	 */
+	public void record(String className) {
+		if(recording) {
+			synchronized(recorded) {
+				if(recorded.size() < MAX_RECORDED) {
+					recorded.add(className);
+				}
+				else {
+					recording = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the class load order recorded during this launch, for the next one.
+	 */
+	public void save() throws IOException {
+		List<String> sequence;
+		synchronized(recorded) {
+			sequence = new ArrayList<>(recorded);
+		}
+		if(sequence.isEmpty()) {
+			return;
+		}
+		Files.createDirectories(sequenceFile.toAbsolutePath().getParent());
+		Files.write(sequenceFile, sequence, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void run() {
+		long start = System.nanoTime();
+		List<String> sequence = Collections.emptyList();
+		try {
+			if(Files.exists(sequenceFile)) {
+				sequence = Files.readAllLines(sequenceFile, StandardCharsets.UTF_8);
+			}
+		}
+		catch(IOException e) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Could not read class load sequence, reading jars front to back", e);
+		}
+
+		List<MappedByteBuffer> mapped = new ArrayList<>();
+		List<Map<String, int[]>> entries = new ArrayList<>();
+		for(Path jar : jars) {
+			try(FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+				if(channel.size() > Integer.MAX_VALUE) {
+					continue;
+				}
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				mapped.add(buffer);
+				entries.add(sequence.isEmpty() ? Collections.emptyMap() : centralDirectory(buffer));
+			}
+			catch(IOException | RuntimeException e) {
+				Log.debug(LogCategory.GAME_PROVIDER, "Could not read ahead " + jar, e);
+			}
+		}
+
+		int ordered = 0;
+		for(String className : sequence) {
+			String entryName = className.replace('.', '/') + ".class";
+			for(int i = 0; i < mapped.size(); i++) {
+				int[] entry = entries.get(i).get(entryName);
+				if(entry != null) {
+					touch(mapped.get(i), entry[0], entry[1]);
+					ordered++;
+					break;
+				}
+			}
+		}
+		long bytes = 0;
+		for(MappedByteBuffer buffer : mapped) {
+			buffer.load();
+			bytes += buffer.capacity();
+		}
+
+		Log.debug(LogCategory.GAME_PROVIDER, "Read ahead " + (bytes >> 20) + "MB of " + mapped.size() + " jars, " + ordered + " classes in load order, in " + (System.nanoTime() - start) / 1000000 + "ms");
+	}
+
+	private void touch(MappedByteBuffer buffer, int offset, int length) {
+		int end = (int) Math.min(buffer.capacity(), (long) offset + length);
+		int sum = 0;
+		for(int position = offset - offset % PAGE; position < end; position += PAGE) {
+			sum += buffer.get(position);
+		}
+		sink += sum;
+	}
+
+	/**
+	 * Reads the zip central directory.
+	 *
+	 * @return the local header offset and approximate stored length of each entry by name,
+	 * or nothing if the file is not a zip this understands, such as a zip64 file
+	 */
+	private static Map<String, int[]> centralDirectory(MappedByteBuffer mapped) {
+		ByteBuffer buffer = mapped.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		int end = -1;
+		for(int i = buffer.capacity() - 22; i >= Math.max(0, buffer.capacity() - 22 - 0xFFFF); i--) {
+			if(buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+				end = i;
+				break;
+			}
+		}
+		if(end < 0) {
+			return Collections.emptyMap();
+		}
+		long directoryOffset = buffer.getInt(end + 16) & 0xFFFFFFFFL;
+		int count = buffer.getShort(end + 10) & 0xFFFF;
+		if(directoryOffset == 0xFFFFFFFFL || count == 0xFFFF || directoryOffset >= buffer.capacity()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, int[]> entries = new HashMap<>(count * 2);
+		int position = (int) directoryOffset;
+		byte[] name = new byte[256];
+		for(int i = 0; i < count && position + 46 <= buffer.capacity() && buffer.getInt(position) == CENTRAL_DIRECTORY; i++) {
+			long compressedSize = buffer.getInt(position + 20) & 0xFFFFFFFFL;
+			int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+			int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+			int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+			long localOffset = buffer.getInt(position + 42) & 0xFFFFFFFFL;
+			if(name.length < nameLength) {
+				name = new byte[nameLength];
+			}
+			buffer.position(position + 46);
+			buffer.get(name, 0, nameLength);
+			if(localOffset < buffer.capacity()) {
+				int length = (int) Math.min(Integer.MAX_VALUE, LOCAL_HEADER_SIZE + nameLength + extraLength + compressedSize);
+				entries.put(new String(name, 0, nameLength, StandardCharsets.UTF_8), new int[] {(int) localOffset, length});
+			}
+			position += 46 + nameLength + extraLength + commentLength;
+		}
+		return entries;
+	}
+
+	private static long size(Path file) {
+		try {
+			return Files.size(file);
+		}
+		catch(IOException e) {
+			return Long.MAX_VALUE;
+		}
+	}
+
+}
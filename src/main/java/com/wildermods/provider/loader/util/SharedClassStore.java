@@ -0,0 +1,289 @@
+package com.wildermods.provider.loader.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipFile;
+
+/**
+ * A read only file of class bytes which any number of game instances map into memory,
+ * so the class files of the game and its libraries are inflated once and then shared
+ * through the OS page cache instead of being read out of the jars by every instance.
+ *
+ * A store is identified by a key built from everything which could change its contents
+ * (see {@link #key(byte[], List, List)}). The first instance to need a store fills it while
+ * holding an exclusive lock on {@code <key>.lock}; instances starting at the same time wait
+ * for it and then map the finished file. Lock files are deleted along with their store, and
+ * only while locked, so an instance which finds its lock file gone after locking it tries again.
+ *
+ * File layout, big endian:
+ * <pre>
+ * header:  "WMCS" version:int
+ * data:    class bytes, back to back
+ * index:   (nameLength:short name:utf8 offset:int length:int)*
+ * trailer: indexOffset:int count:int "WMCS"
+ * </pre>
+ */
+public class SharedClassStore {
+
+	private static final int MAGIC = 0x574d4353; //WMCS
+	private static final int VERSION = 1;
+	private static final int TRAILER_SIZE = 12;
+	private static final long UNUSED_STORE_AGE = TimeUnit.DAYS.toMillis(7);
+
+	private final MappedByteBuffer data;
+	private final Map<String, Long> index;
+
+	private SharedClassStore(MappedByteBuffer data, Map<String, Long> index) {
+		this.data = data;
+		this.index = index;
+	}
+
+	/**
+	 * Maps the store with the given key, filling it first if no instance has yet.
+	 *
+	 * @param directory where stores are kept
+	 * @param jars the jars to store classes from, in classpath order. Where several jars
+	 * contain a class, the first one's copy is stored
+	 * @param excluded supplies the classes which must not be served from the store, because
+	 * something ahead of the jars on the classpath provides them. Only called to fill the store.
+	 */
+	public static SharedClassStore open(Path directory, String key, List<Path> jars, Supplier<Set<String>> excluded) throws IOException {
+		Files.createDirectories(directory);
+		Path store = directory.resolve(key + ".bin");
+		Path lockFile = directory.resolve(key + ".lock");
+		while(true) {
+			try(FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock lock = lockChannel.lock()) {
+				if(!Files.exists(lockFile)) {
+					continue; //pruned before we locked it, so it no longer excludes anyone
+				}
+				if(!Files.exists(store)) {
+					fill(store, jars, excluded.get());
+				}
+				Files.setLastModifiedTime(store, FileTime.fromMillis(System.currentTimeMillis()));
+				break;
+			}
+		}
+		prune(directory, key);
+		return map(store);
+	}
+
+	/**
+	 * @return the bytes of the class, or null if it is not in the store
+	 */
+	public byte[] get(String className) {
+		Long location = index.get(className);
+		if(location == null) {
+			return null;
+		}
+		byte[] bytes = new byte[(int) (location & 0xFFFFFFFFL)];
+		data.get((int) (location >>> 32), bytes);
+		return bytes;
+	}
+
+	public int size() {
+		return index.size();
+	}
+	
+	/**
+	 * @return the size of the mapped store, which lives outside the heap
+	 */
+	public long getMappedBytes() {
+		return data.capacity();
+	}
+
+	/**
+	 * @param versionFile the contents of the game's version.txt
+	 * @param jars the jars the store is filled from
+	 * @param mods the ids and versions of the loaded mods, which decide what is excluded
+	 */
+	public static String key(byte[] versionFile, List<Path> jars, List<String> mods) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		digest.update(versionFile);
+		for(Path jar : jars) {
+			digest.update((jar.toAbsolutePath() + "|" + Files.size(jar) + "|" + Files.getLastModifiedTime(jar).toMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		List<String> sortedMods = new ArrayList<>(mods);
+		sortedMods.sort(null);
+		for(String mod : sortedMods) {
+			digest.update((mod + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder hex = new StringBuilder(32);
+		byte[] hash = digest.digest();
+		for(int i = 0; i < 16; i++) {
+			hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+	private static void fill(Path store, List<Path> jars, Set<String> excluded) throws IOException {
+		Path temp = store.resolveSibling(store.getFileName() + ".tmp");
+		Map<String, Long> index = new HashMap<>();
+		List<String> order = new ArrayList<>();
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			long offset = 8;
+			jars:
+			for(Path jar : jars) {
+				try(JarFile zip = new JarFile(jar.toFile(), false, ZipFile.OPEN_READ, Runtime.version())) {
+					Enumeration<JarEntry> entries = zip.entries();
+					while(entries.hasMoreElements()) {
+						String entryName = entries.nextElement().getName();
+						if(!entryName.endsWith(".class") || entryName.startsWith("META-INF/")) {
+							continue;
+						}
+						String className = entryName.substring(0, entryName.length() - 6).replace('/', '.');
+						if(index.containsKey(className) || excluded.contains(className)) {
+							continue;
+						}
+						JarEntry entry = zip.getJarEntry(entryName); //the multi-release variant for this JVM, as the class loader would pick
+						byte[] bytes;
+						try(InputStream in = zip.getInputStream(entry)) {
+							bytes = in.readAllBytes();
+						}
+						long length = bytes.length;
+						if(offset + length > Integer.MAX_VALUE - (1 << 24)) {
+							break jars; //keep the store mappable, with room for the index. Classes past this are read from their jars
+						}
+						out.write(bytes);
+						index.put(className, (offset << 32) | length);
+						order.add(className);
+						offset += length;
+					}
+				}
+			}
+
+			int indexOffset = (int) offset;
+			for(String className : order) {
+				byte[] name = className.getBytes(StandardCharsets.UTF_8);
+				long location = index.get(className);
+				out.writeShort(name.length);
+				out.write(name);
+				out.writeInt((int) (location >>> 32));
+				out.writeInt((int) location);
+			}
+			out.writeInt(indexOffset);
+			out.writeInt(order.size());
+			out.writeInt(MAGIC);
+		}
+		try {
+			Files.move(temp, store, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(AtomicMoveNotSupportedException e) {
+			Files.move(temp, store, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static SharedClassStore map(Path store) throws IOException {
+		MappedByteBuffer data;
+		try(FileChannel channel = FileChannel.open(store, StandardOpenOption.READ)) {
+			if(channel.size() > Integer.MAX_VALUE || channel.size() < 8 + TRAILER_SIZE) {
+				throw new IOException("Corrupt class store " + store);
+			}
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		int end = data.capacity() - TRAILER_SIZE;
+		if(data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getInt(end + 8) != MAGIC) {
+			throw new IOException("Corrupt class store " + store);
+		}
+		int count = data.getInt(end + 4);
+		ByteBuffer in = data.duplicate();
+		in.position(data.getInt(end));
+		Map<String, Long> index = new HashMap<>(count * 4 / 3 + 1);
+		byte[] name = new byte[256];
+		for(int i = 0; i < count; i++) {
+			int nameLength = in.getShort() & 0xFFFF;
+			if(name.length < nameLength) {
+				name = new byte[nameLength];
+			}
+			in.get(name, 0, nameLength);
+			long offset = in.getInt() & 0xFFFFFFFFL;
+			long length = in.getInt() & 0xFFFFFFFFL;
+			index.put(new String(name, 0, nameLength, StandardCharsets.UTF_8), (offset << 32) | length);
+		}
+		return new SharedClassStore(data, index);
+	}
+
+	/**
+	 * Deletes stores no instance has opened for a while, and the lock files of stores
+	 * which no longer exist. Stores which are still mapped by a running instance can't be
+	 * deleted on Windows and are skipped, as are lock files another instance holds.
+	 */
+	private static void prune(Path directory, String keep) {
+		long unusedSince = System.currentTimeMillis() - UNUSED_STORE_AGE;
+		try(DirectoryStream<Path> stores = Files.newDirectoryStream(directory, "*.bin")) {
+			for(Path store : stores) {
+				if(store.getFileName().toString().equals(keep + ".bin")) {
+					continue;
+				}
+				try {
+					if(Files.getLastModifiedTime(store).toMillis() < unusedSince) {
+						Files.delete(store);
+					}
+				}
+				catch(IOException e) {
+					//in use
+				}
+			}
+		}
+		catch(IOException e) {
+			//nothing to prune
+		}
+		try(DirectoryStream<Path> locks = Files.newDirectoryStream(directory, "*.lock")) {
+			for(Path lockFile : locks) {
+				String name = lockFile.getFileName().toString();
+				String key = name.substring(0, name.length() - ".lock".length());
+				if(key.equals(keep) || Files.exists(directory.resolve(key + ".bin"))) {
+					continue;
+				}
+				try(FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+					FileLock lock = channel.tryLock()) {
+					if(lock != null) {
+						Files.delete(lockFile);
+					}
+				}
+				catch(IOException | OverlappingFileLockException e) {
+					//filling, or in use
+				}
+			}
+		}
+		catch(IOException e) {
+			//nothing to prune
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+package com.wildermods.provider.management;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times reads of game assets through libGDX's {@code FileHandle}.
+ * {@link com.wildermods.provider.patch.FileHandlePatch} makes each traced {@code FileHandle}
+ * method report here with the file, what was done, how long it took and how many bytes (or
+ * characters, for strings) came back.
+ *
+ * Reads are aggregated per file and operation in a fixed number of independently locked,
+ * size bounded stripes. When the game exits the slowest and most repeated reads are written
+ * to {@link #REPORT_FILE}.
+ */
+public final class AssetReads {
+
+	public static final Path REPORT_FILE = Path.of("logs", "asset-reads.txt");
+
+	private static final int STRIPES = 16;
+	private static final int KEYS_PER_STRIPE = 1024;
+	private static final int REPORTED = 50;
+	private static final String OTHER = "(other files)";
+
+	private static final Stripe[] TABLE = newTable();
+	private static final LongAdder OVERFLOWED = new LongAdder();
+	private static final AtomicBoolean REPORTING = new AtomicBoolean();
+
+	private AssetReads() {}
+
+	/**
+	 * Called by patched {@code FileHandle} methods returning a stream, array or string.
+	 */
+	public static void finish(Object result, Object handle, long start, String operation) {
+		long bytes;
+		if(result instanceof byte[]) {
+			bytes = ((byte[]) result).length;
+		}
+		else if(result instanceof String) {
+			bytes = ((String) result).length();
+		}
+		else {
+			bytes = -1;
+		}
+		record(handle, operation, System.nanoTime() - start, bytes);
+	}
+
+	/**
+	 * Called by patched {@code FileHandle} methods returning how many bytes they read.
+	 */
+	public static void finish(int result, Object handle, long start, String operation) {
+		record(handle, operation, System.nanoTime() - start, result);
+	}
+
+	private static void record(Object handle, String operation, long nanos, long bytes) {
+		try {
+			if(REPORTING.compareAndSet(false, true)) {
+				Runtime.getRuntime().addShutdownHook(new Thread(AssetReads::report, "Provider Asset Read Report"));
+			}
+			Key key = new Key(String.valueOf(handle), operation);
+			Stripe stripe = TABLE[(key.hashCode() ^ (key.hashCode() >>> 16)) & (STRIPES - 1)];
+			synchronized(stripe) {
+				Entry entry = stripe.get(key);
+				if(entry == null) {
+					if(stripe.size() >= KEYS_PER_STRIPE) {
+						OVERFLOWED.increment();
+						key = new Key(OTHER, operation);
+						entry = stripe.computeIfAbsent(key, k -> new Entry());
+					}
+					else {
+						entry = new Entry();
+						stripe.put(key, entry);
+					}
+				}
+				entry.count++;
+				entry.nanos += nanos;
+				entry.max = Math.max(entry.max, nanos);
+				if(bytes > 0) {
+					entry.bytes += bytes;
+				}
+			}
+		}
+		catch(Throwable t) {
+			//never break the game's file access
+		}
+	}
+
+	/**
+	 * Writes the reads which took the most time in total, the slowest single reads and the
+	 * most repeated reads.
+	 */
+	public static void report() {
+		List<Map.Entry<Key, Entry>> entries = new ArrayList<>();
+		for(Stripe stripe : TABLE) {
+			synchronized(stripe) {
+				for(Map.Entry<Key, Entry> e : stripe.entrySet()) {
+					entries.add(Map.entry(e.getKey(), e.getValue().copy()));
+				}
+			}
+		}
+		if(entries.isEmpty()) {
+			return;
+		}
+		try {
+			Files.createDirectories(REPORT_FILE.toAbsolutePath().getParent());
+			try(Writer out = Files.newBufferedWriter(REPORT_FILE, StandardCharsets.UTF_8)) {
+				long count = 0;
+				long nanos = 0;
+				Set<String> files = new HashSet<>();
+				for(Map.Entry<Key, Entry> e : entries) {
+					count += e.getValue().count;
+					nanos += e.getValue().nanos;
+					files.add(e.getKey().file);
+				}
+				out.write(String.format(Locale.ROOT, "%d traced reads of %d files taking %.1fms in total%n", count, files.size(), nanos / 1e6));
+				if(OVERFLOWED.sum() > 0) {
+					out.write(OVERFLOWED.sum() + " reads of files past the first " + STRIPES * KEYS_PER_STRIPE + " are counted as " + OTHER + "\n");
+				}
+				section(out, "Most total time", entries, Comparator.comparingLong((Map.Entry<Key, Entry> e) -> e.getValue().nanos));
+				section(out, "Slowest single read", entries, Comparator.comparingLong((Map.Entry<Key, Entry> e) -> e.getValue().max));
+				section(out, "Most repeated", entries, Comparator.comparingLong((Map.Entry<Key, Entry> e) -> e.getValue().count));
+			}
+		}
+		catch(IOException e) {
+			System.err.println("Could not write " + REPORT_FILE);
+			e.printStackTrace();
+		}
+	}
+
+	private static void section(Writer out, String title, List<Map.Entry<Key, Entry>> entries, Comparator<Map.Entry<Key, Entry>> order) throws IOException {
+		entries.sort(order.reversed());
+		out.write("\n" + title + "\n");
+		out.write(String.format(Locale.ROOT, "%10s %12s %10s %10s %12s  %-10s %s%n", "count", "total ms", "mean ms", "max ms", "bytes", "operation", "file"));
+		for(int i = 0; i < Math.min(REPORTED, entries.size()); i++) {
+			Key key = entries.get(i).getKey();
+			Entry entry = entries.get(i).getValue();
+			out.write(String.format(Locale.ROOT, "%10d %12.2f %10.3f %10.3f %12d  %-10s %s%n", entry.count, entry.nanos / 1e6, entry.nanos / 1e6 / entry.count, entry.max / 1e6, entry.bytes, key.operation, key.file));
+		}
+	}
+
+	private static Stripe[] newTable() {
+		Stripe[] table = new Stripe[STRIPES];
+		for(int i = 0; i < STRIPES; i++) {
+			table[i] = new Stripe();
+		}
+		return table;
+	}
+
+	private static final class Stripe extends HashMap<Key, Entry> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private static final class Key {
+		private final String file;
+		private final String operation;
+		private final int hash;
+
+		private Key(String file, String operation) {
+			this.file = file;
+			this.operation = operation;
+			this.hash = 31 * file.hashCode() + operation.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && file.equals(other.file) && Objects.equals(operation, other.operation);
+		}
+	}
+
+	private static final class Entry {
+		private long count;
+		private long nanos;
+		private long max;
+		private long bytes;
+
+		private Entry copy() {
+			Entry copy = new Entry();
+			copy.count = count;
+			copy.nanos = nanos;
+			copy.max = max;
+			copy.bytes = bytes;
+			return copy;
+		}
+	}
+
+}
@@ -0,0 +1,110 @@
+package com.wildermods.provider.management;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size log-linear histogram of durations in microseconds. Every power of two is split
+ * into {@value #SUB_BUCKETS} equal buckets, so any value is recorded to within about 6%, from
+ * 1 microsecond up to about 18 minutes. Larger values are counted in the last bucket.
+ *
+ * Recording never allocates or locks, and may happen concurrently with reading.
+ */
+public class FrameTimeHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_SHIFT = 26;
+	public static final int BUCKETS = (MAX_SHIFT + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long micros) {
+		counts.incrementAndGet(index(micros));
+		long current;
+		while(micros > (current = max.get()) && !max.compareAndSet(current, micros));
+	}
+
+	/**
+	 * Copies the counts into {@code into} and resets them, so the histogram starts over.
+	 *
+	 * @return the largest value recorded since the last reset
+	 */
+	public long drainTo(long[] into) {
+		for(int i = 0; i < BUCKETS; i++) {
+			into[i] = counts.getAndSet(i, 0);
+		}
+		return max.getAndSet(0);
+	}
+
+	/**
+	 * Copies the counts into {@code into}.
+	 *
+	 * @return the largest value recorded
+	 */
+	public long copyTo(long[] into) {
+		for(int i = 0; i < BUCKETS; i++) {
+			into[i] = counts.get(i);
+		}
+		return max.get();
+	}
+
+	static int index(long micros) {
+		if(micros < SUB_BUCKETS) {
+			return (int) Math.max(0, micros);
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+		if(shift > MAX_SHIFT) {
+			return BUCKETS - 1;
+		}
+		return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) - SUB_BUCKETS);
+	}
+
+	/**
+	 * @return the smallest value counted in the bucket
+	 */
+	public static long lowerBound(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+	}
+
+	/**
+	 * @return the largest value counted in the bucket
+	 */
+	public static long upperBound(int index) {
+		return index == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(index + 1) - 1;
+	}
+
+	public static long total(long[] counts) {
+		long total = 0;
+		for(long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the upper bound of the bucket the given fraction of values fall in or below,
+	 * capped to {@code max}. 0 if there are no values.
+	 */
+	public static long percentile(long[] counts, long max, double fraction) {
+		long total = total(counts);
+		if(total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for(int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(upperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+}
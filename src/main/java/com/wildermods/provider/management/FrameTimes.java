@@ -0,0 +1,125 @@
+package com.wildermods.provider.management;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.wildermods.provider.util.logging.Logger;
+
+/**
+ * Records how long frames take. {@link com.wildermods.provider.patch.FrameTimePatch} makes the
+ * libGDX backend call {@link #beforeRender()} and {@link #afterRender()} around every call to
+ * {@code ApplicationListener.render()}.
+ *
+ * Two histograms are kept: the frame time, from the start of one render to the start of the
+ * next, and the time spent inside render itself. Their p50, p99 and max over the last minute
+ * are logged once a minute, and the histograms of the whole session are written to
+ * {@link #DUMP_FILE} when the game exits.
+ *
+ * Only the copy of this class the game's class loader links against records anything, so
+ * unlike {@link com.wildermods.provider.watchdog.Heartbeat} nothing needs to be shared.
+ */
+public final class FrameTimes {
+
+	public static final Path DUMP_FILE = Path.of("logs", "frame-times.csv");
+
+	private static final long REPORT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+	private static final FrameTimeHistogram FRAME = new FrameTimeHistogram();
+	private static final FrameTimeHistogram RENDER = new FrameTimeHistogram();
+	private static final FrameTimeHistogram MINUTE_FRAME = new FrameTimeHistogram();
+	private static final FrameTimeHistogram MINUTE_RENDER = new FrameTimeHistogram();
+
+	private static long renderStart;
+	private static boolean started;
+
+	private FrameTimes() {}
+
+	public static void beforeRender() {
+		long now = System.nanoTime();
+		if(started) {
+			long frame = (now - renderStart) / 1000;
+			FRAME.record(frame);
+			MINUTE_FRAME.record(frame);
+		}
+		else {
+			started = true;
+			startReporting();
+		}
+		renderStart = now;
+	}
+
+	public static void afterRender() {
+		long render = (System.nanoTime() - renderStart) / 1000;
+		RENDER.record(render);
+		MINUTE_RENDER.record(render);
+	}
+
+	private static void startReporting() {
+		Thread reporter = new Thread(FrameTimes::report, "Provider Frame Times");
+		reporter.setDaemon(true);
+		reporter.setPriority(Thread.MIN_PRIORITY);
+		reporter.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(FrameTimes::dump, "Provider Frame Times Dump"));
+	}
+
+	private static void report() {
+		Logger logger = Logger.get("FrameTimes");
+		long[] frame = new long[FrameTimeHistogram.BUCKETS];
+		long[] render = new long[FrameTimeHistogram.BUCKETS];
+		try {
+			while(true) {
+				Thread.sleep(REPORT_INTERVAL);
+				long frameMax = MINUTE_FRAME.drainTo(frame);
+				long renderMax = MINUTE_RENDER.drainTo(render);
+				long frames = FrameTimeHistogram.total(frame);
+				if(frames == 0) {
+					continue;
+				}
+				logger.info(String.format(Locale.ROOT, "%d frames in the last minute. Frame time p50 %.1fms p99 %.1fms max %.1fms, render p50 %.1fms p99 %.1fms max %.1fms",
+					frames,
+					FrameTimeHistogram.percentile(frame, frameMax, 0.5) / 1000d, FrameTimeHistogram.percentile(frame, frameMax, 0.99) / 1000d, frameMax / 1000d,
+					FrameTimeHistogram.percentile(render, renderMax, 0.5) / 1000d, FrameTimeHistogram.percentile(render, renderMax, 0.99) / 1000d, renderMax / 1000d));
+			}
+		}
+		catch(InterruptedException e) {
+			//stopped
+		}
+	}
+
+	/**
+	 * Writes every non empty bucket of both session histograms as
+	 * {@code histogram,lower_us,upper_us,count}.
+	 */
+	private static void dump() {
+		long[] frame = new long[FrameTimeHistogram.BUCKETS];
+		long[] render = new long[FrameTimeHistogram.BUCKETS];
+		long frameMax = FRAME.copyTo(frame);
+		long renderMax = RENDER.copyTo(render);
+		try {
+			Files.createDirectories(DUMP_FILE.toAbsolutePath().getParent());
+			try(Writer out = Files.newBufferedWriter(DUMP_FILE, StandardCharsets.UTF_8)) {
+				out.write("histogram,lower_us,upper_us,count\n");
+				write(out, "frame", frame, frameMax);
+				write(out, "render", render, renderMax);
+			}
+		}
+		catch(IOException e) {
+			System.err.println("Could not write " + DUMP_FILE);
+			e.printStackTrace();
+		}
+	}
+
+	private static void write(Writer out, String name, long[] counts, long max) throws IOException {
+		for(int i = 0; i < counts.length; i++) {
+			if(counts[i] != 0) {
+				out.write(name + "," + FrameTimeHistogram.lowerBound(i) + "," + Math.min(FrameTimeHistogram.upperBound(i), max) + "," + counts[i] + "\n");
+			}
+		}
+	}
+
+}
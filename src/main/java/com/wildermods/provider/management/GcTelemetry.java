@@ -0,0 +1,201 @@
+package com.wildermods.provider.management;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import com.sun.management.ThreadMXBean;
+import com.wildermods.provider.util.logging.LogFiles;
+
+/**
+ * Writes garbage collections and the allocation rate of the game's main thread to a CSV file,
+ * one row per collection and one row per sample:
+ *
+ * <pre>
+ * time,epoch_ms,event,name,cause,duration_ms,heap_before,heap_after,main_allocated,main_allocation_rate
+ * 2024-01-01 12:00:00.000,1704110400000,gc,G1 Young Generation,G1 Evacuation Pause,12,524288000,104857600,,
+ * 2024-01-01 12:00:01.000,1704110401000,alloc,,,,,104900000,8589934592,41943040
+ * </pre>
+ *
+ * {@code time} uses the same clock and precision as the log files, so a hitch can be matched
+ * against what was logged around it. Heap sizes are in bytes and the allocation rate is in
+ * bytes per second. Sample rows put the heap in use at the time in {@code heap_after}.
+ * The file is rolled over when it grows past {@link #MAX_FILE_SIZE}.
+ */
+public class GcTelemetry implements NotificationListener, Runnable {
+
+	public static final long MAX_FILE_SIZE = 8 * 1024 * 1024;
+	public static final int MAX_ROLLOVERS = 5;
+
+	private static final String HEADER = "time,epoch_ms,event,name,cause,duration_ms,heap_before,heap_after,main_allocated,main_allocation_rate\n";
+	private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+	private final Path file;
+	private final Thread main;
+	private final long intervalMillis;
+	private final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+	private final Set<String> heapPools = new HashSet<>();
+	private final ThreadMXBean threads;
+
+	private Writer out;
+	private long written;
+
+	private GcTelemetry(Path file, Thread main, long intervalMillis) {
+		this.file = file;
+		this.main = main;
+		this.intervalMillis = intervalMillis;
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				heapPools.add(pool.getName());
+			}
+		}
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof ThreadMXBean && ((ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+			this.threads = (ThreadMXBean) threads;
+			this.threads.setThreadAllocatedMemoryEnabled(true);
+		}
+		else {
+			this.threads = null;
+		}
+	}
+
+	/**
+	 * Starts recording collections, and samples the allocations of {@code main} every
+	 * {@code intervalMillis} on a daemon thread for as long as it is alive.
+	 */
+	public static GcTelemetry start(Path file, Thread main, long intervalMillis) throws IOException {
+		GcTelemetry telemetry = new GcTelemetry(file, main, intervalMillis);
+		telemetry.open();
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if(gc instanceof NotificationEmitter) {
+				((NotificationEmitter) gc).addNotificationListener(telemetry, n -> GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType()), null);
+			}
+		}
+		if(telemetry.threads != null) {
+			Thread thread = new Thread(telemetry, "Provider GC Telemetry");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			thread.start();
+		}
+		return telemetry;
+	}
+
+	@Override
+	public void handleNotification(Notification notification, Object handback) {
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+		GcInfo gc = info.getGcInfo();
+		StringBuilder row = row(jvmStart + gc.getStartTime(), "gc");
+		column(row, info.getGcName());
+		column(row, info.getGcCause());
+		row.append(gc.getDuration()).append(',');
+		row.append(heapUsed(gc.getMemoryUsageBeforeGc())).append(',');
+		row.append(heapUsed(gc.getMemoryUsageAfterGc())).append(",,\n");
+		write(row, threads == null); //otherwise the sampler flushes, collections can come in bursts
+	}
+
+	@Override
+	public void run() {
+		long id = main.getId();
+		long lastTime = System.currentTimeMillis();
+		long lastAllocated = threads.getThreadAllocatedBytes(id);
+		try {
+			while(main.isAlive()) {
+				Thread.sleep(intervalMillis);
+				long time = System.currentTimeMillis();
+				long allocated = threads.getThreadAllocatedBytes(id);
+				if(allocated < 0) {
+					return; //main thread has died
+				}
+				long rate = time > lastTime ? (allocated - lastAllocated) * 1000 / (time - lastTime) : 0;
+				StringBuilder row = row(time, "alloc");
+				row.append(",,,,");
+				row.append(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed()).append(',');
+				row.append(allocated).append(',').append(rate).append('\n');
+				write(row, true);
+				lastTime = time;
+				lastAllocated = allocated;
+			}
+		}
+		catch(InterruptedException e) {
+			//stopped
+		}
+	}
+
+	private StringBuilder row(long epochMillis, String event) {
+		StringBuilder row = new StringBuilder(128);
+		row.append(TIME.format(Instant.ofEpochMilli(epochMillis))).append(',').append(epochMillis).append(',').append(event).append(',');
+		return row;
+	}
+
+	private static void column(StringBuilder row, String value) {
+		if(value.indexOf(',') >= 0 || value.indexOf('"') >= 0) {
+			row.append('"').append(value.replace("\"", "\"\"")).append('"');
+		}
+		else {
+			row.append(value);
+		}
+		row.append(',');
+	}
+
+	private long heapUsed(Map<String, MemoryUsage> pools) {
+		long used = 0;
+		for(Map.Entry<String, MemoryUsage> pool : pools.entrySet()) {
+			if(heapPools.contains(pool.getKey())) {
+				used += pool.getValue().getUsed();
+			}
+		}
+		return used;
+	}
+
+	private synchronized void write(CharSequence row, boolean flush) {
+		if(out == null) {
+			return;
+		}
+		try {
+			if(written > MAX_FILE_SIZE) {
+				out.close();
+				open();
+			}
+			out.append(row);
+			if(flush) {
+				out.flush();
+			}
+			written += row.length();
+		}
+		catch(IOException e) {
+			out = null; //disk full or file removed, stop recording rather than failing every collection
+		}
+	}
+
+	private void open() throws IOException {
+		LogFiles.rotate(file, MAX_ROLLOVERS);
+		Path parent = file.toAbsolutePath().getParent();
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+		out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+		out.write(HEADER);
+		written = HEADER.length();
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.wildermods.provider.management;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.wildermods.provider.util.logging.LogLevel;
+import com.wildermods.provider.util.logging.Logger;
+import com.wildermods.provider.util.logging.ReplayLogHandler;
+
+/**
+ * A minimal HTTP endpoint bound to the loopback interface which serves runtime
+ * health of the running game in the OpenMetrics text format at {@code /metrics}.
+ *
+ * Requests are served one at a time on a single daemon thread, so it never keeps
+ * the game alive and never competes with it for more than one core.
+ */
+public class MetricsServer implements Runnable {
+
+	private static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+	private static final int READ_TIMEOUT = 2000;
+
+	private final ServerSocket socket;
+	private final ProviderStatistics statistics;
+
+	private MetricsServer(ServerSocket socket, ProviderStatistics statistics) {
+		this.socket = socket;
+		this.statistics = statistics;
+	}
+
+	public static MetricsServer start(int port, ProviderStatistics statistics) throws IOException {
+		ServerSocket socket = new ServerSocket(port, 4, InetAddress.getLoopbackAddress());
+		MetricsServer server = new MetricsServer(socket, statistics);
+		Thread thread = new Thread(server, "Provider Metrics");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+		return server;
+	}
+
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	public void stop() throws IOException {
+		socket.close();
+	}
+
+	@Override
+	public void run() {
+		while(!socket.isClosed()) {
+			try(Socket client = socket.accept()) {
+				client.setSoTimeout(READ_TIMEOUT);
+				handle(client);
+			}
+			catch(SocketException e) {
+				if(socket.isClosed()) {
+					return;
+				}
+			}
+			catch(IOException | RuntimeException e) {
+				//client went away, sent garbage, or a metric could not be read. Keep serving.
+			}
+		}
+	}
+
+	private void handle(Socket client) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.ISO_8859_1));
+		String requestLine = in.readLine();
+		if(requestLine == null) {
+			return;
+		}
+		String header;
+		do {
+			header = in.readLine();
+		}
+		while(header != null && !header.isEmpty());
+
+		String[] request = requestLine.split(" ");
+		OutputStream out = client.getOutputStream();
+		if(request.length < 2 || !(request[0].equals("GET") || request[0].equals("HEAD"))) {
+			respond(out, "405 Method Not Allowed", "text/plain; charset=utf-8", "Method not allowed\n", true);
+		}
+		else if(!request[1].equals("/metrics") && !request[1].startsWith("/metrics?")) {
+			respond(out, "404 Not Found", "text/plain; charset=utf-8", "Metrics are served at /metrics\n", true);
+		}
+		else {
+			respond(out, "200 OK", CONTENT_TYPE, scrape(), !request[0].equals("HEAD"));
+		}
+	}
+
+	private static void respond(OutputStream out, String status, String contentType, String body, boolean includeBody) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		String headers = "HTTP/1.1 " + status + "\r\n"
+			+ "Content-Type: " + contentType + "\r\n"
+			+ "Content-Length: " + bytes.length + "\r\n"
+			+ "Connection: close\r\n\r\n";
+		out.write(headers.getBytes(StandardCharsets.ISO_8859_1));
+		if(includeBody) {
+			out.write(bytes);
+		}
+		out.flush();
+	}
+
+	String scrape() {
+		StringBuilder b = new StringBuilder(4096);
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		MemoryUsage heap = memory.getHeapMemoryUsage();
+		MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+		family(b, "wildermyth_jvm_memory_used_bytes", "gauge", "bytes", "Memory in use");
+		sample(b, "wildermyth_jvm_memory_used_bytes", "area", "heap", heap.getUsed());
+		sample(b, "wildermyth_jvm_memory_used_bytes", "area", "nonheap", nonHeap.getUsed());
+		family(b, "wildermyth_jvm_memory_committed_bytes", "gauge", "bytes", "Memory committed by the JVM");
+		sample(b, "wildermyth_jvm_memory_committed_bytes", "area", "heap", heap.getCommitted());
+		sample(b, "wildermyth_jvm_memory_committed_bytes", "area", "nonheap", nonHeap.getCommitted());
+		family(b, "wildermyth_jvm_memory_max_bytes", "gauge", "bytes", "Maximum memory the JVM may use, -1 if undefined");
+		sample(b, "wildermyth_jvm_memory_max_bytes", "area", "heap", heap.getMax());
+		sample(b, "wildermyth_jvm_memory_max_bytes", "area", "nonheap", nonHeap.getMax());
+
+		family(b, "wildermyth_jvm_gc_collections", "counter", null, "Garbage collections performed");
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			sample(b, "wildermyth_jvm_gc_collections_total", "gc", gc.getName(), gc.getCollectionCount());
+		}
+		family(b, "wildermyth_jvm_gc_collection_seconds", "counter", "seconds", "Time spent in garbage collection");
+		for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			sample(b, "wildermyth_jvm_gc_collection_seconds_total", "gc", gc.getName(), gc.getCollectionTime() / 1000d);
+		}
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		family(b, "wildermyth_jvm_threads", "gauge", null, "Live threads");
+		sample(b, "wildermyth_jvm_threads", "kind", "live", threads.getThreadCount());
+		sample(b, "wildermyth_jvm_threads", "kind", "daemon", threads.getDaemonThreadCount());
+		sample(b, "wildermyth_jvm_threads", "kind", "peak", threads.getPeakThreadCount());
+
+		ClassLoadingMXBean classes = ManagementFactory.getClassLoadingMXBean();
+		family(b, "wildermyth_jvm_classes_loaded", "gauge", null, "Classes currently loaded");
+		sample(b, "wildermyth_jvm_classes_loaded", null, null, classes.getLoadedClassCount());
+		family(b, "wildermyth_jvm_classes_unloaded", "counter", null, "Classes unloaded since the JVM started");
+		sample(b, "wildermyth_jvm_classes_unloaded_total", null, null, classes.getUnloadedClassCount());
+
+		family(b, "wildermyth_provider_log_events", "counter", null, "Events logged through the provider Logger");
+		for(LogLevel level : LogLevel.values()) {
+			sample(b, "wildermyth_provider_log_events_total", "level", level.name(), Logger.getLoggedCount(level));
+		}
+		family(b, "wildermyth_provider_log_suppressed", "counter", null, "Repeated events suppressed by the provider Logger");
+		for(LogLevel level : LogLevel.values()) {
+			sample(b, "wildermyth_provider_log_suppressed_total", "level", level.name(), Logger.getSuppressedCount(level));
+		}
+		family(b, "wildermyth_provider_log_replay_dropped", "counter", null, "Early events dropped from the log replay buffer before log4j was set up");
+		for(LogLevel level : LogLevel.values()) {
+			sample(b, "wildermyth_provider_log_replay_dropped_total", "level", level.name(), ReplayLogHandler.getDroppedCount(level));
+		}
+
+		if(statistics != null) {
+			counters(b, "wildermyth_provider_classes_queried", "Classes the loader asked the provider about", statistics.getClassesQueried());
+			counters(b, "wildermyth_provider_classes_transformed", "Classes given built in transforms", statistics.getClassesGivenBuiltinTransforms());
+		}
+
+		b.append("# EOF\n");
+		return b.toString();
+	}
+
+	private static void counters(StringBuilder b, String name, String help, Map<String, Long> values) {
+		family(b, name, "counter", null, help);
+		for(Map.Entry<String, Long> e : values.entrySet()) {
+			sample(b, name + "_total", "package", e.getKey(), e.getValue());
+		}
+	}
+
+	private static void family(StringBuilder b, String name, String type, String unit, String help) {
+		b.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		if(unit != null) {
+			b.append("# UNIT ").append(name).append(' ').append(unit).append('\n');
+		}
+		b.append("# HELP ").append(name).append(' ').append(help).append('\n');
+	}
+
+	private static void sample(StringBuilder b, String name, String label, String labelValue, Number value) {
+		b.append(name);
+		if(label != null) {
+			b.append('{').append(label).append("=\"");
+			for(int i = 0; i < labelValue.length(); i++) {
+				char c = labelValue.charAt(i);
+				switch(c) {
+					case '\\':
+						b.append("\\\\");
+						break;
+					case '"':
+						b.append("\\\"");
+						break;
+					case '\n':
+						b.append("\\n");
+						break;
+					default:
+						b.append(c);
+				}
+			}
+			b.append("\"}");
+		}
+		b.append(' ').append(value).append('\n');
+	}
+
+}
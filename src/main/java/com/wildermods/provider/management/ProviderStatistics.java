@@ -0,0 +1,137 @@
+package com.wildermods.provider.management;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class ProviderStatistics implements WildermythProviderMXBean {
+	
+	public static final String OBJECT_NAME = "com.wildermods.provider:type=WildermythProvider";
+	public static final String OTHER = "other";
+	
+	private final String[] prefixes;
+	private final PackageCounters[] counters;
+	private final PackageCounters other = new PackageCounters(OTHER, false);
+	
+	private volatile String gameJar;
+	private volatile String libDir;
+	private volatile List<String> miscGameLibraries = Collections.emptyList();
+	
+	public ProviderStatistics(String... prefixes) {
+		this.prefixes = prefixes;
+		this.counters = new PackageCounters[prefixes.length];
+		for(int i = 0; i < prefixes.length; i++) {
+			counters[i] = new PackageCounters(prefixes[i], true);
+		}
+	}
+	
+	/**
+	 * @return the counters of the first prefix the class name starts with, or the
+	 * shared {@value #OTHER} counters if it matches none of them.
+	 */
+	public PackageCounters countersFor(String className) {
+		for(int i = 0; i < prefixes.length; i++) {
+			if(className.startsWith(prefixes[i])) {
+				return counters[i];
+			}
+		}
+		return other;
+	}
+	
+	public void setGameLocation(Path gameJar, Path libDir, Collection<Path> miscGameLibraries) {
+		this.gameJar = String.valueOf(gameJar);
+		this.libDir = String.valueOf(libDir);
+		this.miscGameLibraries = miscGameLibraries.stream().map(Path::toString).collect(Collectors.toUnmodifiableList());
+	}
+	
+	public void register() throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if(!server.isRegistered(name)) {
+			server.registerMBean(this, name);
+		}
+	}
+
+	@Override
+	public String getGameJar() {
+		return gameJar;
+	}
+
+	@Override
+	public String getLibDir() {
+		return libDir;
+	}
+
+	@Override
+	public List<String> getMiscGameLibraries() {
+		return miscGameLibraries;
+	}
+
+	@Override
+	public Map<String, Long> getClassesQueried() {
+		return collect(c -> c.queried);
+	}
+
+	@Override
+	public Map<String, Long> getClassesGivenBuiltinTransforms() {
+		return collect(c -> c.givenBuiltinTransforms);
+	}
+
+	@Override
+	public Map<String, Long> getBytesTransformed() {
+		return collect(c -> c.bytesTransformed);
+	}
+
+	@Override
+	public Map<String, Long> getTransformTimeNanos() {
+		return collect(c -> c.transformNanos);
+	}
+	
+	private Map<String, Long> collect(Function<PackageCounters, LongAdder> counter) {
+		LinkedHashMap<String, Long> ret = new LinkedHashMap<>();
+		for(PackageCounters c : counters) {
+			ret.put(c.prefix, counter.apply(c).sum());
+		}
+		ret.put(other.prefix, counter.apply(other).sum());
+		return ret;
+	}
+	
+	public static final class PackageCounters {
+		
+		private final String prefix;
+		private final boolean builtinTransforms;
+		public final LongAdder queried = new LongAdder();
+		public final LongAdder givenBuiltinTransforms = new LongAdder();
+		public final LongAdder bytesTransformed = new LongAdder();
+		public final LongAdder transformNanos = new LongAdder();
+		
+		private PackageCounters(String prefix, boolean builtinTransforms) {
+			this.prefix = prefix;
+			this.builtinTransforms = builtinTransforms;
+		}
+		
+		public String getPrefix() {
+			return prefix;
+		}
+		
+		/**
+		 * @return true if classes matching this prefix receive the provider's built in transforms
+		 */
+		public boolean receivesBuiltinTransforms() {
+			return builtinTransforms;
+		}
+		
+	}
+	
+}
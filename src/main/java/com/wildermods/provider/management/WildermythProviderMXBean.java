@@ -0,0 +1,40 @@
+package com.wildermods.provider.management;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Published as {@value ProviderStatistics#OBJECT_NAME}.
+ * 
+ * The class counters are keyed by the package prefixes the provider applies built in
+ * transforms to, plus {@value ProviderStatistics#OTHER} for every other class.
+ */
+public interface WildermythProviderMXBean {
+
+	public String getGameJar();
+	
+	public String getLibDir();
+	
+	public List<String> getMiscGameLibraries();
+	
+	/**
+	 * @return how many times the loader asked which built in transforms a class needs
+	 */
+	public Map<String, Long> getClassesQueried();
+	
+	/**
+	 * @return how many classes were given built in transforms
+	 */
+	public Map<String, Long> getClassesGivenBuiltinTransforms();
+	
+	/**
+	 * @return how many bytes of patched class data the provider's game transformer has handed out
+	 */
+	public Map<String, Long> getBytesTransformed();
+	
+	/**
+	 * @return cumulative time spent in the provider's game transformer, in nanoseconds
+	 */
+	public Map<String, Long> getTransformTimeNanos();
+	
+}
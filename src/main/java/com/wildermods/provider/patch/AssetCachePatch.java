@@ -0,0 +1,106 @@
+package com.wildermods.provider.patch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Makes libGDX's {@code FileHandle.read()} and {@code FileHandle.readBytes()} return the
+ * contents cached by {@link com.wildermods.provider.loader.util.AssetCache} when it has them.
+ *
+ * Like {@link FileHandlePatch}, each method is renamed and made private, and a method with
+ * the original name takes its place. It asks the cache with the handle's type and file,
+ * and calls the original method if the cache returns null. Every other way of reading a
+ * {@code FileHandle}, such as {@code readString} or {@code reader}, goes through {@code read()}.
+ */
+public class AssetCachePatch extends GamePatch {
+
+	private static final String FILE_HANDLE = "com.badlogic.gdx.files.FileHandle";
+	private static final String FILE_HANDLE_INTERNAL = "com/badlogic/gdx/files/FileHandle";
+	private static final String FILE_TYPE = "Lcom/badlogic/gdx/Files$FileType;";
+	private static final String HOOK_OWNER = "com/wildermods/provider/loader/util/AssetCache";
+	private static final String RENAMED_PREFIX = "provider$cached$";
+
+	private static final String[][] CACHED = {
+		{"read", "()Ljava/io/InputStream;", "java/io/InputStream"},
+		{"readBytes", "()[B", "[B"}
+	};
+
+	@Override
+	public void process(FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+		ClassNode fileHandle = classSource.apply(FILE_HANDLE);
+		if(fileHandle == null) {
+			Log.warn(LogCategory.GAME_PATCH, "Could not find " + FILE_HANDLE + ", assets will not be cached");
+			return;
+		}
+
+		List<MethodNode> wrappers = new ArrayList<>();
+		for(MethodNode method : fileHandle.methods) {
+			for(String[] cached : CACHED) {
+				if(method.name.equals(cached[0]) && method.desc.equals(cached[1]) && (method.access & (Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0) {
+					wrappers.add(wrap(fileHandle, method, cached[2]));
+				}
+			}
+		}
+		if(wrappers.isEmpty()) {
+			Log.warn(LogCategory.GAME_PATCH, "Could not find read methods in " + FILE_HANDLE + ", assets will not be cached");
+			return;
+		}
+		fileHandle.methods.addAll(wrappers);
+		classEmitter.accept(fileHandle);
+		Log.debug(LogCategory.GAME_PATCH, "Caching assets read through " + wrappers.size() + " methods of " + FILE_HANDLE);
+	}
+
+	/**
+	 * <pre>
+	 * Object cached = AssetCache.method(this.type(), this.file());
+	 * if(cached != null) return cached;
+	 * return this.provider$cached$method();
+	 * </pre>
+	 */
+	private static MethodNode wrap(ClassNode owner, MethodNode original, String returnType) {
+		MethodNode wrapper = new MethodNode(original.access, original.name, original.desc, original.signature, original.exceptions == null ? null : original.exceptions.toArray(new String[0]));
+		String hook = original.name;
+		original.name = RENAMED_PREFIX + original.name;
+		original.access = (original.access & ~(Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) | Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC;
+
+		LabelNode miss = new LabelNode();
+		InsnList code = wrapper.instructions;
+		code.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		code.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, FILE_HANDLE_INTERNAL, "type", "()" + FILE_TYPE, false));
+		code.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		code.add(new MethodInsnNode(Opcodes.INVOKEVIRTUAL, FILE_HANDLE_INTERNAL, "file", "()Ljava/io/File;", false));
+		code.add(new MethodInsnNode(Opcodes.INVOKESTATIC, HOOK_OWNER, hook, "(Ljava/lang/Enum;Ljava/io/File;)" + original.desc.substring(2), false));
+		code.add(new InsnNode(Opcodes.DUP));
+		code.add(new JumpInsnNode(Opcodes.IFNULL, miss));
+		code.add(new InsnNode(Opcodes.ARETURN));
+		code.add(miss);
+		code.add(new FrameNode(Opcodes.F_SAME1, 0, null, 1, new Object[] {returnType}));
+		code.add(new InsnNode(Opcodes.POP));
+		code.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		code.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, owner.name, original.name, original.desc, false));
+		code.add(new InsnNode(Opcodes.ARETURN));
+
+		wrapper.maxLocals = 1;
+		wrapper.maxStack = 2;
+		return wrapper;
+	}
+
+}
@@ -0,0 +1,109 @@
+package com.wildermods.provider.patch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Times the methods of libGDX's {@code FileHandle} which open or read files, reporting to
+ * {@link com.wildermods.provider.management.AssetReads}.
+ *
+ * Each traced method is renamed and made private, and a method with the original name and
+ * access takes its place which calls it between two timestamps. The replacement has no
+ * branches, so no stack map frames of the original code need to change. Reads which throw
+ * are not recorded.
+ */
+public class FileHandlePatch extends GamePatch {
+
+	private static final String FILE_HANDLE = "com.badlogic.gdx.files.FileHandle";
+	private static final String HOOK_OWNER = "com/wildermods/provider/management/AssetReads";
+	private static final String RENAMED_PREFIX = "provider$traced$";
+
+	/**
+	 * name, descriptor, and the operation it is reported as. Overloads which only delegate
+	 * to one of these are left alone, so a read isn't counted twice under one operation.
+	 */
+	private static final String[][] TRACED = {
+		{"read", "()Ljava/io/InputStream;", "open"},
+		{"readBytes", "()[B", "readBytes"},
+		{"readBytes", "([BII)I", "readInto"},
+		{"readString", "(Ljava/lang/String;)Ljava/lang/String;", "readString"}
+	};
+
+	@Override
+	public void process(FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+		ClassNode fileHandle = classSource.apply(FILE_HANDLE);
+		if(fileHandle == null) {
+			Log.warn(LogCategory.GAME_PATCH, "Could not find " + FILE_HANDLE + ", asset reads will not be traced");
+			return;
+		}
+
+		List<MethodNode> wrappers = new ArrayList<>();
+		for(MethodNode method : fileHandle.methods) {
+			for(String[] traced : TRACED) {
+				if(method.name.equals(traced[0]) && method.desc.equals(traced[1]) && (method.access & (Opcodes.ACC_STATIC | Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0) {
+					wrappers.add(wrap(fileHandle, method, traced[2]));
+				}
+			}
+		}
+		if(wrappers.isEmpty()) {
+			Log.warn(LogCategory.GAME_PATCH, "Could not find any read methods in " + FILE_HANDLE + ", asset reads will not be traced");
+			return;
+		}
+		fileHandle.methods.addAll(wrappers);
+		classEmitter.accept(fileHandle);
+		Log.debug(LogCategory.GAME_PATCH, "Tracing " + wrappers.size() + " read methods of " + FILE_HANDLE);
+	}
+
+	private static MethodNode wrap(ClassNode owner, MethodNode original, String operation) {
+		MethodNode wrapper = new MethodNode(original.access, original.name, original.desc, original.signature, original.exceptions == null ? null : original.exceptions.toArray(new String[0]));
+		original.name = RENAMED_PREFIX + original.name;
+		original.access = (original.access & ~(Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED)) | Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC;
+
+		Type[] arguments = Type.getArgumentTypes(original.desc);
+		Type returnType = Type.getReturnType(original.desc);
+		int startLocal = 1;
+		for(Type argument : arguments) {
+			startLocal += argument.getSize();
+		}
+
+		InsnList code = wrapper.instructions;
+		code.add(new MethodInsnNode(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false));
+		code.add(new VarInsnNode(Opcodes.LSTORE, startLocal));
+		code.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		int local = 1;
+		for(Type argument : arguments) {
+			code.add(new VarInsnNode(argument.getOpcode(Opcodes.ILOAD), local));
+			local += argument.getSize();
+		}
+		code.add(new MethodInsnNode(Opcodes.INVOKESPECIAL, owner.name, original.name, original.desc, false));
+		code.add(new InsnNode(Opcodes.DUP));
+		code.add(new VarInsnNode(Opcodes.ALOAD, 0));
+		code.add(new VarInsnNode(Opcodes.LLOAD, startLocal));
+		code.add(new LdcInsnNode(operation));
+		String result = returnType.getSort() == Type.INT ? "I" : "Ljava/lang/Object;";
+		code.add(new MethodInsnNode(Opcodes.INVOKESTATIC, HOOK_OWNER, "finish", "(" + result + "Ljava/lang/Object;JLjava/lang/String;)V", false));
+		code.add(new InsnNode(returnType.getOpcode(Opcodes.IRETURN)));
+
+		wrapper.maxLocals = startLocal + 2;
+		wrapper.maxStack = Math.max(startLocal, 6);
+		return wrapper;
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.wildermods.provider.patch;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Wraps every call to {@code ApplicationListener.render()} in the libGDX desktop backends with
+ * {@link com.wildermods.provider.management.FrameTimes#beforeRender()} and
+ * {@link com.wildermods.provider.management.FrameTimes#afterRender()}.
+ */
+public class FrameTimePatch extends GamePatch {
+
+	private static final String HOOK_OWNER = "com/wildermods/provider/management/FrameTimes";
+	private static final String LISTENER = "com/badlogic/gdx/ApplicationListener";
+
+	private static final String[] BACKENDS = {
+		"com.badlogic.gdx.backends.lwjgl3.Lwjgl3Window",
+		"com.badlogic.gdx.backends.lwjgl.LwjglApplication"
+	};
+
+	@Override
+	public void process(FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+		for(String backend : BACKENDS) {
+			ClassNode backendClass = classSource.apply(backend);
+			if(backendClass == null) {
+				continue;
+			}
+
+			int calls = 0;
+			for(MethodNode method : backendClass.methods) {
+				for(AbstractInsnNode insn : method.instructions.toArray()) {
+					if(insn instanceof MethodInsnNode && isRender((MethodInsnNode) insn)) {
+						method.instructions.insertBefore(insn, new MethodInsnNode(Opcodes.INVOKESTATIC, HOOK_OWNER, "beforeRender", "()V", false));
+						method.instructions.insert(insn, new MethodInsnNode(Opcodes.INVOKESTATIC, HOOK_OWNER, "afterRender", "()V", false));
+						calls++;
+					}
+				}
+			}
+
+			if(calls == 0) {
+				Log.warn(LogCategory.GAME_PATCH, "Could not find a call to render() in " + backend + ", frame times will not be recorded");
+				continue;
+			}
+			classEmitter.accept(backendClass);
+			Log.debug(LogCategory.GAME_PATCH, "Recording frame times around " + calls + " render call(s) in " + backend);
+		}
+	}
+
+	private static boolean isRender(MethodInsnNode insn) {
+		return insn.getOpcode() == Opcodes.INVOKEINTERFACE && insn.owner.equals(LISTENER) && insn.name.equals("render") && insn.desc.equals("()V");
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.wildermods.provider.patch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Makes everything in a class file which isn't private public, the same way Fabric's
+ * {@code WIDEN_ALL_PACKAGE_ACCESS} builtin transform does, by rewriting the access flags of the
+ * class, its fields, its methods and its inner class entries in place. The class file is walked
+ * once and nothing else in it changes, so no ASM reader or writer is involved.
+ */
+public final class PackageAccessWidener {
+
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final byte[] INNER_CLASSES = "InnerClasses".getBytes(StandardCharsets.UTF_8);
+
+	private PackageAccessWidener() {}
+
+	/**
+	 * @return a widened copy of the class file
+	 * @throws IllegalArgumentException if the class file can't be read
+	 */
+	public static byte[] widen(byte[] classFile) {
+		byte[] widened = classFile.clone();
+		ByteBuffer buffer = ByteBuffer.wrap(widened);
+		try {
+			if(buffer.getInt() != MAGIC) {
+				throw new IllegalArgumentException("Not a class file");
+			}
+			buffer.position(buffer.position() + 4); //version
+
+			int constants = buffer.getShort() & 0xFFFF;
+			int[] utf8 = new int[constants]; //offset of each UTF8 constant's length, or 0
+			for(int i = 1; i < constants; i++) {
+				int tag = buffer.get();
+				switch(tag) {
+					case 1: //Utf8
+						utf8[i] = buffer.position();
+						buffer.position(buffer.position() + 2 + (buffer.getShort(buffer.position()) & 0xFFFF));
+						break;
+					case 7: //Class
+					case 8: //String
+					case 16: //MethodType
+					case 19: //Module
+					case 20: //Package
+						buffer.position(buffer.position() + 2);
+						break;
+					case 15: //MethodHandle
+						buffer.position(buffer.position() + 3);
+						break;
+					case 3: //Integer
+					case 4: //Float
+					case 9: //Fieldref
+					case 10: //Methodref
+					case 11: //InterfaceMethodref
+					case 12: //NameAndType
+					case 17: //Dynamic
+					case 18: //InvokeDynamic
+						buffer.position(buffer.position() + 4);
+						break;
+					case 5: //Long
+					case 6: //Double
+						buffer.position(buffer.position() + 8);
+						i++;
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+				}
+			}
+
+			widenAt(buffer, buffer.position());
+			buffer.position(buffer.position() + 6); //access, this and super
+			int interfaces = buffer.getShort() & 0xFFFF;
+			buffer.position(buffer.position() + 2 * interfaces);
+
+			for(int members = 0; members < 2; members++) { //fields, then methods
+				int count = buffer.getShort() & 0xFFFF;
+				for(int i = 0; i < count; i++) {
+					widenAt(buffer, buffer.position());
+					buffer.position(buffer.position() + 6); //access, name and descriptor
+					skipAttributes(buffer);
+				}
+			}
+
+			int attributes = buffer.getShort() & 0xFFFF;
+			for(int i = 0; i < attributes; i++) {
+				int name = buffer.getShort() & 0xFFFF;
+				int length = buffer.getInt();
+				int end = buffer.position() + length;
+				if(isInnerClasses(widened, utf8[name])) {
+					int classes = buffer.getShort() & 0xFFFF;
+					for(int j = 0; j < classes; j++) {
+						widenAt(buffer, buffer.position() + 6); //after inner, outer and name
+						buffer.position(buffer.position() + 8);
+					}
+				}
+				buffer.position(end);
+			}
+		}
+		catch(RuntimeException e) { //buffer under and overflows, bad positions and indices
+			throw new IllegalArgumentException("Malformed class file", e);
+		}
+		return widened;
+	}
+
+	/**
+	 * The same rule as Fabric's package access fixer.
+	 */
+	static int widen(int access) {
+		if((access & 0x7) != Opcodes.ACC_PRIVATE) {
+			return (access & ~0x7) | Opcodes.ACC_PUBLIC;
+		}
+		return access;
+	}
+
+	private static void widenAt(ByteBuffer buffer, int offset) {
+		buffer.putShort(offset, (short) widen(buffer.getShort(offset) & 0xFFFF));
+	}
+
+	private static void skipAttributes(ByteBuffer buffer) {
+		int attributes = buffer.getShort() & 0xFFFF;
+		for(int i = 0; i < attributes; i++) {
+			buffer.position(buffer.position() + 2);
+			int length = buffer.getInt();
+			buffer.position(buffer.position() + length);
+		}
+	}
+
+	private static boolean isInnerClasses(byte[] classFile, int utf8) {
+		if(utf8 == 0 || ((classFile[utf8] & 0xFF) << 8 | (classFile[utf8 + 1] & 0xFF)) != INNER_CLASSES.length) {
+			return false;
+		}
+		for(int i = 0; i < INNER_CLASSES.length; i++) {
+			if(classFile[utf8 + 2 + i] != INNER_CLASSES[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,320 @@
+package com.wildermods.provider.patch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.tree.ClassNode;
+
+import com.wildermods.provider.ProviderSettings;
+import com.wildermods.provider.loader.util.SharedClassStore;
+import com.wildermods.provider.management.ProviderStatistics;
+import com.wildermods.provider.management.ProviderStatistics.PackageCounters;
+
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.game.patch.GameTransformer;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Knot asks the entrypoint transformer for every class it loads before applying
+ * the built in transforms, which makes this the one place the provider sees all class traffic.
+ * 
+ * The game patches are applied here rather than by Fabric's {@link GameTransformer}, so the
+ * patched bytes are the provider's to drop once Knot has defined the classes they belong to.
+ * A class' patched bytes are dropped the second time they are asked for, which is Knot after
+ * Mixin read the class or Mixin after Knot defined it, and at launch for every class handed out
+ * which Knot has defined by then. Anything which reads a released class afterwards, such as a
+ * Mixin {@code ClassInfo} lookup, gets its unpatched bytes.
+ */
+public class ProviderGameTransformer extends GameTransformer {
+
+	private final ProviderStatistics statistics;
+	private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+	private volatile SharedClassStore classStore;
+	private final GamePatch[] patches;
+	private final Map<String, byte[]> patchedClasses = new ConcurrentHashMap<>();
+	private final Set<String> handedOut = ConcurrentHashMap.newKeySet();
+	private final LongAdder releasedBytes = new LongAdder();
+	private volatile FabricLauncher launcher;
+	private boolean entrypointsLocated;
+	private volatile Predicate<String> widenInPlace;
+	private final Set<String> widened = ConcurrentHashMap.newKeySet();
+	
+	public ProviderGameTransformer(ProviderStatistics statistics, GamePatch... patches) {
+		this.statistics = statistics;
+		this.patches = patches;
+	}
+	
+	/**
+	 * @return a transformer applying the game patches enabled by {@code settings}, the way the provider builds its own
+	 */
+	public static ProviderGameTransformer create(ProviderStatistics statistics, ProviderSettings settings) {
+		List<GamePatch> patches = new ArrayList<>();
+		patches.add(new LegacyPatch());
+		if(settings.stallWatchdogEnabled()) {
+			patches.add(new RenderLoopPatch());
+		}
+		if(settings.frameTimeHistogramEnabled()) {
+			patches.add(new FrameTimePatch());
+		}
+		if(settings.assetCacheEnabled()) {
+			patches.add(new AssetCachePatch());
+		}
+		if(settings.assetReadTracingEnabled()) {
+			patches.add(new FileHandlePatch()); //after the cache, so cache hits are traced too
+		}
+		return new ProviderGameTransformer(statistics, patches.toArray(new GamePatch[0]));
+	}
+	
+	/**
+	 * Applies every game patch in turn, a patch seeing the classes emitted by the ones before it.
+	 */
+	@Override
+	public void locateEntrypoints(FabricLauncher launcher, List<Path> gameJars) {
+		if(entrypointsLocated) {
+			return;
+		}
+		this.launcher = launcher;
+		List<ZipFile> jars = new ArrayList<>();
+		try {
+			for(Path jar : gameJars) {
+				if(Files.isRegularFile(jar)) {
+					jars.add(new ZipFile(jar.toFile()));
+				}
+			}
+			Map<String, ClassNode> patched = new LinkedHashMap<>();
+			Function<String, ClassNode> classSource = name -> {
+				ClassNode node = patched.get(name);
+				return node != null ? node : readClassNode(jars, name);
+			};
+			for(GamePatch patch : patches) {
+				patch.process(launcher, classSource, node -> patched.put(node.name.replace('/', '.'), node));
+			}
+			for(Map.Entry<String, ClassNode> entry : patched.entrySet()) {
+				ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+				entry.getValue().accept(writer);
+				patchedClasses.put(entry.getKey(), writer.toByteArray());
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			for(ZipFile jar : jars) {
+				try {
+					jar.close();
+				}
+				catch(IOException e) {
+					//ignore
+				}
+			}
+		}
+		Log.debug(LogCategory.GAME_PATCH, "Patched " + patchedClasses.size() + " classes");
+		entrypointsLocated = true;
+	}
+	
+	private static ClassNode readClassNode(List<ZipFile> jars, String name) {
+		String file = name.replace('.', '/') + ".class";
+		for(ZipFile jar : jars) {
+			ZipEntry entry = jar.getEntry(file);
+			if(entry != null) {
+				try(InputStream in = jar.getInputStream(entry)) {
+					ClassNode node = new ClassNode();
+					new ClassReader(in).accept(node, 0);
+					return node;
+				}
+				catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return null;
+	}
+	
+	@Override
+	public byte[] transform(String className) {
+		long start = System.nanoTime();
+		byte[] transformed = patchedClasses.get(className);
+		if(transformed != null && !handedOut.add(className)) {
+			release(className); //the second ask, nothing needs them after this one
+		}
+		byte[] stored = null;
+		if(transformed == null) {
+			SharedClassStore store = classStore;
+			if(store != null) {
+				transformed = stored = store.get(className);
+			}
+			Predicate<String> widen = widenInPlace;
+			if(widen != null && widen.test(className)) {
+				transformed = widen(className, transformed);
+			}
+		}
+		PackageCounters counters = statistics.countersFor(className);
+		if(transformed != null && transformed != stored) { //bytes served unchanged from the store were not transformed
+			counters.bytesTransformed.add(transformed.length);
+		}
+		counters.transformNanos.add(System.nanoTime() - start);
+		for(Consumer<String> listener : listeners) {
+			listener.accept(className);
+		}
+		return transformed;
+	}
+	
+	/**
+	 * @param bytes the class' bytes from the class store, or null to read them through the launcher
+	 * @return the widened bytes, or the given bytes if the class can't be widened here
+	 */
+	private byte[] widen(String className, byte[] bytes) {
+		widened.remove(className);
+		try {
+			if(bytes == null) {
+				FabricLauncher launcher = this.launcher;
+				if(launcher == null) {
+					return null;
+				}
+				bytes = launcher.getClassByteArray(className, false);
+				if(bytes == null) {
+					return null;
+				}
+			}
+			byte[] widenedBytes = PackageAccessWidener.widen(bytes);
+			widened.add(className);
+			return widenedBytes;
+		}
+		catch(IOException | IllegalArgumentException e) {
+			return bytes; //leave it to Fabric
+		}
+	}
+	
+	/**
+	 * @param listener called with the binary name of every class passing through this transformer,
+	 * on the thread loading it
+	 */
+	public void addClassLoadListener(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * @param store serves the bytes of classes which no built in transform patches,
+	 * instead of the class loader reading them out of their jar
+	 */
+	public void setClassStore(SharedClassStore store) {
+		this.classStore = store;
+	}
+	
+	/**
+	 * Drops the patched bytes of a class Knot has already defined.
+	 * 
+	 * @return the number of bytes released
+	 */
+	public long release(String className) {
+		handedOut.remove(className);
+		byte[] bytes = patchedClasses.remove(className);
+		if(bytes == null) {
+			return 0;
+		}
+		releasedBytes.add(bytes.length);
+		return bytes.length;
+	}
+	
+	/**
+	 * Drops the patched bytes of every class which has been handed out and which Knot has
+	 * since defined. Mixin may ask for a class' bytes before Knot defines it, so handing
+	 * them out alone doesn't mean they are no longer needed.
+	 * 
+	 * Must not be called while loading a class, as Knot takes the loading lock of every class
+	 * it is asked about.
+	 */
+	public void releaseLoaded() {
+		FabricLauncher launcher = this.launcher;
+		if(launcher == null) {
+			return;
+		}
+		for(String className : handedOut) {
+			if(launcher.isClassLoaded(className)) {
+				release(className);
+			}
+		}
+	}
+	
+	/**
+	 * @return the size of the patched classes released so far
+	 */
+	public long getReleasedBytes() {
+		return releasedBytes.sum();
+	}
+	
+	/**
+	 * @return the number of patched classes whose bytes are still held
+	 */
+	public int getPatchedClassCount() {
+		return patchedClasses.size();
+	}
+	
+	/**
+	 * @return the size of the patched classes whose bytes are still held
+	 */
+	public long getPatchedClassBytes() {
+		long bytes = 0;
+		for(byte[] data : patchedClasses.values()) {
+			bytes += data.length;
+		}
+		return bytes;
+	}
+	
+	/**
+	 * @param classes which classes should have their package access widened here, instead of by
+	 * Fabric's builtin transforms. Patched classes never are.
+	 */
+	public void setWidenInPlace(Predicate<String> classes) {
+		this.widenInPlace = classes;
+	}
+	
+	/**
+	 * Widens every class which would receive Fabric's builtin transforms in place, unless a mixin targets it.
+	 * 
+	 * @param targeted whether mixins target a class
+	 */
+	public void widenUntargeted(Predicate<String> targeted) {
+		setWidenInPlace(className -> statistics.countersFor(className).receivesBuiltinTransforms() && !targeted.test(className));
+	}
+	
+	/**
+	 * Knot asks for the builtin transforms of a class after asking this transformer for it. Mixin
+	 * may ask this transformer for a class without Knot going on to ask for its builtin transforms,
+	 * in which case the class stays marked until it is.
+	 * 
+	 * @return true if the bytes last handed out for the class were widened by this transformer
+	 */
+	public boolean takeWidened(String className) {
+		return widened.remove(className);
+	}
+	
+	public int getClassLoadListenerCount() {
+		return listeners.size();
+	}
+	
+	public SharedClassStore getClassStore() {
+		return classStore;
+	}
+	
+}
@@ -0,0 +1,49 @@
+package com.wildermods.provider.patch;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import net.fabricmc.loader.impl.game.patch.GamePatch;
+import net.fabricmc.loader.impl.launch.FabricLauncher;
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Calls {@link com.wildermods.provider.watchdog.Heartbeat#beat()} at the start of every
+ * frame of the libGDX render loop, for whichever desktop backend the game ships.
+ */
+public class RenderLoopPatch extends GamePatch {
+
+	private static final String HOOK_OWNER = "com/wildermods/provider/watchdog/Heartbeat";
+	
+	private static final String[][] FRAME_METHODS = {
+		{"com.badlogic.gdx.backends.lwjgl3.Lwjgl3Window", "update", "()Z"},
+		{"com.badlogic.gdx.backends.lwjgl.LwjglGraphics", "updateTime", "()V"}
+	};
+	
+	@Override
+	public void process(FabricLauncher launcher, Function<String, ClassNode> classSource, Consumer<ClassNode> classEmitter) {
+		for(String[] target : FRAME_METHODS) {
+			ClassNode frameClass = classSource.apply(target[0]);
+			if(frameClass == null) {
+				continue;
+			}
+			
+			MethodNode frameMethod = findMethod(frameClass, (method) -> method.name.equals(target[1]) && method.desc.equals(target[2]));
+			if(frameMethod == null) {
+				Log.warn(LogCategory.GAME_PATCH, "Could not find " + target[0] + "." + target[1] + target[2] + ", frames will not be tracked");
+				continue;
+			}
+			
+			frameMethod.instructions.insert(new MethodInsnNode(Opcodes.INVOKESTATIC, HOOK_OWNER, "beat", "()V", false));
+			classEmitter.accept(frameClass);
+			Log.debug(LogCategory.GAME_PATCH, "Tracking frames through " + target[0] + "." + target[1] + target[2]);
+		}
+	}
+
+}
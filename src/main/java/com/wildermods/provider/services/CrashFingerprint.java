@@ -0,0 +1,123 @@
+package com.wildermods.provider.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import net.fabricmc.loader.api.ModContainer;
+
+/**
+ * Identifies crashes which have the same cause, so that reports from different players,
+ * game versions and mod lists can be grouped together.
+ *
+ * A fingerprint is a hash of the root cause's exception type and its top {@link #FRAMES}
+ * frames. Frames only contribute their class and method name, since line numbers shift
+ * between builds. Names which Mixin, lambdas and hidden classes generate per build are
+ * normalized, and reflection frames, which differ between JVMs, are skipped.
+ */
+public final class CrashFingerprint {
+
+	public static final int FRAMES = 5;
+
+	private static final Pattern MIXIN_UNIQUE = Pattern.compile("\\$z[a-z]{2}\\d{3}\\$");
+	private static final Pattern MIXIN_MERGED = Pattern.compile("^md[0-9a-f]{6}\\$");
+	private static final Pattern LAMBDA_INDEX = Pattern.compile("^(lambda\\$.*\\$)\\d+$");
+	private static final Pattern HIDDEN_CLASS = Pattern.compile("\\$\\$Lambda.*$");
+	private static final String[] SKIPPED = {"jdk.internal.reflect.", "sun.reflect.", "java.lang.reflect.", "java.lang.invoke."};
+
+	private CrashFingerprint() {}
+
+	/**
+	 * @return a 16 character hex fingerprint of the crash
+	 */
+	public static String of(Throwable t) {
+		Throwable root = rootCause(t);
+		StringBuilder b = new StringBuilder(root.getClass().getName());
+		for(String frame : frames(root, FRAMES)) {
+			b.append('\n').append(frame);
+		}
+		return hash(b.toString());
+	}
+
+	/**
+	 * @return the innermost cause of the given throwable
+	 */
+	public static Throwable rootCause(Throwable t) {
+		Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		while(t.getCause() != null && seen.add(t)) {
+			t = t.getCause();
+		}
+		return t;
+	}
+
+	/**
+	 * @return up to {@code count} normalized frames from the top of the stack of {@code t}
+	 */
+	public static List<String> frames(Throwable t, int count) {
+		List<String> frames = new ArrayList<>(count);
+		for(StackTraceElement element : t.getStackTrace()) {
+			if(frames.size() == count) {
+				break;
+			}
+			if(!isSkipped(element.getClassName())) {
+				frames.add(normalizeClass(element.getClassName()) + "." + normalizeMethod(element.getMethodName()));
+			}
+		}
+		return frames;
+	}
+
+	/**
+	 * @return a 16 character hex hash of the ids and versions of the given mods, in any order
+	 */
+	public static String modsHash(Collection<ModContainer> mods) {
+		List<String> ids = new ArrayList<>(mods.size());
+		for(ModContainer mod : mods) {
+			ids.add(mod.getMetadata().getId() + "@" + mod.getMetadata().getVersion().getFriendlyString());
+		}
+		Collections.sort(ids);
+		return hash(String.join("\n", ids));
+	}
+
+	static String normalizeMethod(String method) {
+		method = MIXIN_MERGED.matcher(method).replaceFirst("");
+		method = MIXIN_UNIQUE.matcher(method).replaceAll("\\$");
+		return LAMBDA_INDEX.matcher(method).replaceFirst("$1");
+	}
+
+	static String normalizeClass(String clazz) {
+		return HIDDEN_CLASS.matcher(clazz).replaceFirst("\\$\\$Lambda");
+	}
+
+	private static boolean isSkipped(String clazz) {
+		for(String prefix : SKIPPED) {
+			if(clazz.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String hash(String s) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		byte[] hash = digest.digest(s.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder(16);
+		for(int i = 0; i < 8; i++) {
+			hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+}
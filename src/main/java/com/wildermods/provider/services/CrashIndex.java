@@ -0,0 +1,145 @@
+package com.wildermods.provider.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An append only index of crashes, one tab separated line per crash:
+ *
+ * <pre>time	fingerprint	game version	mods hash	exception	top frame</pre>
+ *
+ * {@code time} is in epoch milliseconds, and {@code fingerprint} and {@code mods hash} come
+ * from {@link CrashFingerprint}. Index files collected from many players can be concatenated
+ * or passed to {@link #main(String[])} together.
+ */
+public class CrashIndex {
+
+	public static final Path DEFAULT_FILE = Path.of("logs", "crash-index.tsv");
+
+	/**
+	 * Appends a crash to the index file, creating it if needed.
+	 */
+	public static void append(Path file, Throwable t, String gameVersion, String modsHash) throws IOException {
+		Throwable root = CrashFingerprint.rootCause(t);
+		List<String> frames = CrashFingerprint.frames(root, 1);
+		StringBuilder line = new StringBuilder(160)
+			.append(System.currentTimeMillis()).append('\t')
+			.append(CrashFingerprint.of(t)).append('\t')
+			.append(clean(gameVersion)).append('\t')
+			.append(clean(modsHash)).append('\t')
+			.append(root.getClass().getName()).append('\t')
+			.append(frames.isEmpty() ? "-" : frames.get(0)).append('\n');
+
+		Path parent = file.toAbsolutePath().getParent();
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+		try(Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			out.append(line);
+		}
+	}
+
+	/**
+	 * Groups the crashes in one or more index files by fingerprint and prints them, most frequent first.
+	 *
+	 * <pre>java -cp provider.jar com.wildermods.provider.services.CrashIndex [--version &lt;game version&gt;] [--mods &lt;mods hash&gt;] [index files...]</pre>
+	 *
+	 * Reads {@link #DEFAULT_FILE} if no file is given.
+	 */
+	public static void main(String[] args) throws IOException {
+		String version = null;
+		String mods = null;
+		List<Path> files = new ArrayList<>();
+		for(int i = 0; i < args.length; i++) {
+			if(args[i].equals("--version") && i + 1 < args.length) {
+				version = args[++i];
+			}
+			else if(args[i].equals("--mods") && i + 1 < args.length) {
+				mods = args[++i];
+			}
+			else {
+				files.add(Path.of(args[i]));
+			}
+		}
+		if(files.isEmpty()) {
+			files.add(DEFAULT_FILE);
+		}
+
+		Map<String, Group> groups = new LinkedHashMap<>();
+		int total = 0;
+		for(Path file : files) {
+			try(BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				String line;
+				while((line = in.readLine()) != null) {
+					String[] columns = line.split("\t", -1);
+					if(columns.length < 6 || (version != null && !version.equals(columns[2])) || (mods != null && !mods.equals(columns[3]))) {
+						continue;
+					}
+					long time;
+					try {
+						time = Long.parseLong(columns[0]);
+					}
+					catch(NumberFormatException e) {
+						continue;
+					}
+					groups.computeIfAbsent(columns[1], f -> new Group(columns[4], columns[5])).add(time, columns[2], columns[3]);
+					total++;
+				}
+			}
+		}
+
+		List<Map.Entry<String, Group>> sorted = new ArrayList<>(groups.entrySet());
+		sorted.sort((a, b) -> Integer.compare(b.getValue().count, a.getValue().count));
+		System.out.println(total + " crashes, " + groups.size() + " distinct");
+		for(Map.Entry<String, Group> e : sorted) {
+			Group g = e.getValue();
+			System.out.println();
+			System.out.println(g.count + "x " + e.getKey() + " " + g.exception + " at " + g.frame);
+			System.out.println("\tfirst " + Instant.ofEpochMilli(g.first) + ", last " + Instant.ofEpochMilli(g.last));
+			System.out.println("\tgame versions " + g.versions + ", " + g.modLists.size() + " distinct mod lists");
+		}
+	}
+
+	private static String clean(String s) {
+		if(s == null || s.isEmpty()) {
+			return "-";
+		}
+		return s.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+	}
+
+	private static final class Group {
+		private final String exception;
+		private final String frame;
+		private final Set<String> versions = new LinkedHashSet<>();
+		private final Set<String> modLists = new LinkedHashSet<>();
+		private int count;
+		private long first = Long.MAX_VALUE;
+		private long last = Long.MIN_VALUE;
+
+		private Group(String exception, String frame) {
+			this.exception = exception;
+			this.frame = frame;
+		}
+
+		private void add(long time, String version, String mods) {
+			count++;
+			first = Math.min(first, time);
+			last = Math.max(last, time);
+			versions.add(version);
+			modLists.add(mods);
+		}
+	}
+
+}
@@ -22,6 +22,21 @@ public interface CrashLogService {
 		return Internal.service;
 	}
 	
+	/**
+	 * Like {@link #obtain(ClassLoader)}, but finds the service through the index instead of
+	 * scanning the classpath. Falls back to scanning if there is no index.
+	 */
+	public static CrashLogService obtain(ClassLoader loader, ServiceIndex index) {
+		if(index == null) {
+			return obtain(loader);
+		}
+		if(Internal.service == null) {
+			Internal.service = index.findFirst(CrashLogService.class, loader);
+			Internal.gameLoader = loader;
+		}
+		return Internal.service;
+	}
+	
 	public static CrashLogService obtain() {
 		return obtain(false);
 	}
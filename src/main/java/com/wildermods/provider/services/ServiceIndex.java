@@ -0,0 +1,228 @@
+package com.wildermods.provider.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Maps service interfaces to the classes which provide them, from the
+ * {@code META-INF/services} files of every classpath entry, so that looking up a
+ * service doesn't make the class loader open every jar on the classpath again.
+ *
+ * The entries of jars are cached between launches and only read again when a jar on
+ * the classpath is added, removed or changed. Directories are always read.
+ */
+public class ServiceIndex {
+
+	private static final String SERVICES = "META-INF/services/";
+	private static final String KEY = "classpath";
+	private static final String SERVICE = "service.";
+
+	private final Map<String, Set<String>> providers;
+
+	private ServiceIndex(Map<String, Set<String>> providers) {
+		this.providers = providers;
+	}
+
+	/**
+	 * @param cacheFile where the index of the jars is kept between launches. Does not need to exist.
+	 * @param classPath the classpath, in order
+	 */
+	public static ServiceIndex load(Path cacheFile, List<Path> classPath) throws IOException {
+		List<Path> jars = new ArrayList<>();
+		List<Path> directories = new ArrayList<>();
+		for(Path entry : classPath) {
+			if(Files.isDirectory(entry)) {
+				directories.add(entry);
+			}
+			else if(Files.isRegularFile(entry)) {
+				jars.add(entry);
+			}
+		}
+
+		String key = key(jars);
+		Map<String, Set<String>> providers = null;
+		if(Files.exists(cacheFile)) {
+			Properties cached = new Properties();
+			try(InputStream in = Files.newInputStream(cacheFile)) {
+				cached.load(in);
+			}
+			if(key.equals(cached.getProperty(KEY))) {
+				providers = new LinkedHashMap<>();
+				for(String name : cached.stringPropertyNames()) {
+					if(name.startsWith(SERVICE)) {
+						Set<String> classes = new LinkedHashSet<>();
+						for(String clazz : cached.getProperty(name).split(",")) {
+							if(!clazz.isEmpty()) {
+								classes.add(clazz);
+							}
+						}
+						providers.put(name.substring(SERVICE.length()), classes);
+					}
+				}
+			}
+		}
+
+		if(providers == null) {
+			long start = System.nanoTime();
+			providers = new LinkedHashMap<>();
+			for(Path jar : jars) {
+				readJar(jar, providers);
+			}
+			save(cacheFile, key, providers);
+			Log.debug(LogCategory.GAME_PROVIDER, "Indexed " + providers.size() + " services in " + jars.size() + " jars in " + (System.nanoTime() - start) / 1000000 + "ms");
+		}
+
+		for(Path directory : directories) {
+			readDirectory(directory, providers);
+		}
+		return new ServiceIndex(providers);
+	}
+
+	/**
+	 * @return the names of the classes providing the service, in classpath order
+	 */
+	public List<String> getProviders(String service) {
+		Set<String> classes = providers.get(service);
+		return classes == null ? Collections.emptyList() : new ArrayList<>(classes);
+	}
+
+	/**
+	 * Instantiates the first provider of the service which can be loaded by {@code loader}, the
+	 * way {@link java.util.ServiceLoader#findFirst()} would.
+	 *
+	 * @return the provider, or null if there isn't one
+	 */
+	public <S> S findFirst(Class<S> service, ClassLoader loader) {
+		for(String name : getProviders(service.getName())) {
+			try {
+				Class<?> clazz = Class.forName(name, false, loader);
+				if(!service.isAssignableFrom(clazz)) {
+					Log.warn(LogCategory.GAME_PROVIDER, name + " is registered as a " + service.getName() + " but does not implement it");
+					continue;
+				}
+				return service.cast(clazz.getConstructor().newInstance());
+			}
+			catch(ReflectiveOperationException | LinkageError e) {
+				Log.warn(LogCategory.GAME_PROVIDER, "Could not instantiate " + service.getName() + " provider " + name, e);
+			}
+		}
+		return null;
+	}
+
+	private static void readJar(Path jar, Map<String, Set<String>> providers) {
+		try(ZipFile zip = new ZipFile(jar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while(entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if(name.startsWith(SERVICES) && !entry.isDirectory() && name.indexOf('/', SERVICES.length()) == -1) {
+					try(InputStream in = zip.getInputStream(entry)) {
+						read(in, name.substring(SERVICES.length()), providers);
+					}
+				}
+			}
+		}
+		catch(IOException e) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Could not read services of " + jar, e);
+		}
+	}
+
+	private static void readDirectory(Path directory, Map<String, Set<String>> providers) {
+		Path services = directory.resolve(SERVICES);
+		if(!Files.isDirectory(services)) {
+			return;
+		}
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(services)) {
+			for(Path file : files) {
+				if(Files.isRegularFile(file)) {
+					try(InputStream in = Files.newInputStream(file)) {
+						read(in, file.getFileName().toString(), providers);
+					}
+				}
+			}
+		}
+		catch(IOException e) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Could not read services of " + directory, e);
+		}
+	}
+
+	/**
+	 * Reads a provider configuration file, see {@link java.util.ServiceLoader} for the format.
+	 */
+	private static void read(InputStream in, String service, Map<String, Set<String>> providers) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while((line = reader.readLine()) != null) {
+			int comment = line.indexOf('#');
+			if(comment != -1) {
+				line = line.substring(0, comment);
+			}
+			line = line.trim();
+			if(!line.isEmpty()) {
+				providers.computeIfAbsent(service, s -> new LinkedHashSet<>()).add(line);
+			}
+		}
+	}
+
+	private static void save(Path cacheFile, String key, Map<String, Set<String>> providers) {
+		Properties properties = new Properties();
+		properties.setProperty(KEY, key);
+		for(Map.Entry<String, Set<String>> e : providers.entrySet()) {
+			properties.setProperty(SERVICE + e.getKey(), String.join(",", e.getValue()));
+		}
+		try {
+			Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+			Path temp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+			try(OutputStream out = Files.newOutputStream(temp)) {
+				properties.store(out, "Service providers on the classpath, see " + ServiceIndex.class.getName());
+			}
+			Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(IOException e) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Could not save service index to " + cacheFile, e);
+		}
+	}
+
+	private static String key(List<Path> jars) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch(NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		for(Path jar : jars) {
+			digest.update((jar.toAbsolutePath() + "|" + Files.size(jar) + "|" + Files.getLastModifiedTime(jar).toMillis() + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for(byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+}
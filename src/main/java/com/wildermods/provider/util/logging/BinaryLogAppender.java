@@ -0,0 +1,106 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.ReusableParameterizedMessage;
+
+/**
+ * A log4j appender that writes events through a {@link BinaryLogWriter} instead of
+ * formatting them as text. Parameterized messages are stored as their format string
+ * plus parameters, so the formatting cost is only paid when the log is decoded.
+ */
+public class BinaryLogAppender extends AbstractAppender {
+
+	private final BinaryLogWriter writer;
+
+	protected BinaryLogAppender(String name, BinaryLogWriter writer) {
+		super(name, null, null, true, Property.EMPTY_ARRAY);
+		this.writer = writer;
+	}
+
+	public static BinaryLogAppender create(String name, Path file, int maxRollovers) throws IOException {
+		LogFiles.rotate(file, maxRollovers);
+		return new BinaryLogAppender(name, new BinaryLogWriter(file));
+	}
+
+	@Override
+	public void append(LogEvent event) {
+		Message message = event.getMessage();
+		String format;
+		String[] params = null;
+		if(message instanceof ParameterizedMessage || message instanceof ReusableParameterizedMessage) {
+			format = message.getFormat();
+			Object[] parameters = message.getParameters();
+			if(parameters != null && parameters.length > 0) {
+				params = new String[parameters.length];
+				for(int i = 0; i < parameters.length; i++) {
+					params[i] = toString(parameters[i]);
+				}
+			}
+		}
+		else {
+			format = message.getFormattedMessage();
+		}
+
+		Marker marker = event.getMarker();
+		Throwable thrown = event.getThrown();
+		String stackTrace = null;
+		if(thrown != null) {
+			StringWriter s = new StringWriter();
+			thrown.printStackTrace(new PrintWriter(s));
+			stackTrace = s.toString();
+		}
+
+		try {
+			writer.write(
+				event.getTimeMillis(),
+				event.getLevel().name(),
+				event.getThreadName(),
+				event.getLoggerName(),
+				marker == null ? null : marker.getName(),
+				format,
+				params,
+				stackTrace,
+				event.getLevel().isMoreSpecificThan(Level.ERROR)
+			);
+		}
+		catch(IOException e) {
+			error("Could not write to binary log", event, e);
+		}
+	}
+
+	@Override
+	public boolean stop(long timeout, TimeUnit timeUnit) {
+		setStopping();
+		boolean stopped = super.stop(timeout, timeUnit, false);
+		try {
+			writer.close();
+		}
+		catch(IOException e) {
+			error("Could not close binary log", e);
+			stopped = false;
+		}
+		setStopped();
+		return stopped;
+	}
+
+	private static String toString(Object o) {
+		if(o instanceof Object[]) {
+			return Arrays.deepToString((Object[]) o);
+		}
+		return String.valueOf(o);
+	}
+
+}
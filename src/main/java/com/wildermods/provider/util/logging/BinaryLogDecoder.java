@@ -0,0 +1,205 @@
+package com.wildermods.provider.util.logging;
+
+import static com.wildermods.provider.util.logging.BinaryLogWriter.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+
+/**
+ * Turns a log written by {@link BinaryLogWriter} back into the text format used
+ * by the file appenders in log4j2.xml.
+ *
+ * Usage: {@code java -cp provider.jar com.wildermods.provider.util.logging.BinaryLogDecoder <debug.bin> [output.log]}
+ */
+public class BinaryLogDecoder {
+
+	private final DataInputStream in;
+	private final ArrayList<String> dictionary = new ArrayList<>();
+	private final SimpleDateFormat dateFormat = new SimpleDateFormat("ddMMMyyyy HH:mm:ss.SSS");
+	private long time;
+
+	public BinaryLogDecoder(InputStream in) throws IOException {
+		this.in = new DataInputStream(new BufferedInputStream(in));
+		if(this.in.readInt() != MAGIC) {
+			throw new IOException("Not a binary log file");
+		}
+		int version = this.in.readUnsignedByte();
+		if(version != VERSION) {
+			throw new IOException("Unsupported binary log version " + version);
+		}
+		time = readVarLong(this.in);
+		dictionary.add(null); //REF_ABSENT
+		dictionary.add(null); //REF_LITERAL
+	}
+
+	public void decode(Writer out) throws IOException {
+		StringBuilder line = new StringBuilder(256);
+		byte[] buf = new byte[256];
+		while(true) {
+			int length;
+			try {
+				length = (int) readVarLong(in);
+			}
+			catch(EOFException e) {
+				break;
+			}
+			if(buf.length < length) {
+				buf = new byte[Math.max(length, buf.length * 2)];
+			}
+			try {
+				in.readFully(buf, 0, length);
+			}
+			catch(EOFException e) {
+				break; //the game was killed mid-write, everything before this record is intact
+			}
+			DataInputStream record = new DataInputStream(new ByteArrayInputStream(buf, 0, length));
+			int type = record.readUnsignedByte();
+			if(type == DEFINE) {
+				int id = (int) readVarLong(record);
+				while(dictionary.size() <= id) {
+					dictionary.add(null);
+				}
+				dictionary.set(id, readString(record));
+			}
+			else if(type == EVENT) {
+				line.setLength(0);
+				readEvent(record, line);
+				out.write(line.toString());
+			}
+			//unknown record types are skipped so newer writers stay readable
+		}
+		out.flush();
+	}
+
+	private void readEvent(DataInputStream record, StringBuilder line) throws IOException {
+		long delta = readVarLong(record);
+		time += (delta >>> 1) ^ -(delta & 1);
+		String level = readRef(record);
+		String thread = readRef(record);
+		String logger = readRef(record);
+		String marker = readRef(record);
+		String format = readRef(record);
+		int paramCount = (int) readVarLong(record);
+		String[] params = null;
+		if(paramCount > 0) {
+			params = new String[paramCount];
+			for(int i = 0; i < paramCount; i++) {
+				params[i] = readString(record);
+			}
+		}
+		String thrown = readRef(record);
+
+		line.append('[').append(dateFormat.format(new Date(time))).append("] [")
+			.append(thread).append('/').append(level).append("] [")
+			.append(logger).append('/').append(marker == null ? "" : marker).append("]: ");
+		if(params == null) {
+			line.append(format);
+		}
+		else {
+			appendFormatted(line, format, params);
+		}
+		line.append(System.lineSeparator());
+		if(thrown != null) {
+			line.append(thrown);
+		}
+	}
+
+	/**
+	 * Substitutes {@code {}} placeholders the same way log4j's ParameterizedMessage does,
+	 * including its handling of backslash escapes.
+	 */
+	static void appendFormatted(StringBuilder out, String format, String[] params) {
+		int escapes = 0;
+		int param = 0;
+		for(int i = 0; i < format.length(); i++) {
+			char c = format.charAt(i);
+			if(c == '\\') {
+				escapes++;
+				continue;
+			}
+			if(c == '{' && i + 1 < format.length() && format.charAt(i + 1) == '}') {
+				for(int e = 0; e < escapes / 2; e++) {
+					out.append('\\');
+				}
+				if(escapes % 2 == 1 || param >= params.length) {
+					out.append("{}");
+				}
+				else {
+					out.append(params[param++]);
+				}
+				i++;
+			}
+			else {
+				for(int e = 0; e < escapes; e++) {
+					out.append('\\');
+				}
+				out.append(c);
+			}
+			escapes = 0;
+		}
+		for(int e = 0; e < escapes; e++) {
+			out.append('\\');
+		}
+	}
+
+	private String readRef(DataInputStream record) throws IOException {
+		int ref = (int) readVarLong(record);
+		if(ref == REF_ABSENT) {
+			return null;
+		}
+		if(ref == REF_LITERAL) {
+			return readString(record);
+		}
+		return ref < dictionary.size() ? dictionary.get(ref) : "<undefined #" + ref + ">";
+	}
+
+	private static String readString(DataInputStream record) throws IOException {
+		byte[] bytes = new byte[(int) readVarLong(record)];
+		record.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long result = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			result |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1 || args.length > 2) {
+			System.err.println("Usage: BinaryLogDecoder <input.bin> [output.log]");
+			System.exit(1);
+		}
+		try(InputStream in = Files.newInputStream(Path.of(args[0]))) {
+			BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+			if(args.length == 2) {
+				try(Writer out = Files.newBufferedWriter(Path.of(args[1]))) {
+					decoder.decode(out);
+				}
+			}
+			else {
+				decoder.decode(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+			}
+		}
+	}
+
+}
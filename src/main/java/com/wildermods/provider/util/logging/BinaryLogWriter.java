@@ -0,0 +1,221 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes log events as a compact, length-prefixed binary stream.
+ *
+ * Levels, thread names, logger names, markers and message format strings are
+ * interned: the first time a string is seen a DEFINE record assigns it an id,
+ * and every later event refers to it by that id. Timestamps are stored as
+ * deltas from the previous event.
+ *
+ * This class only depends on the JDK so that {@link BinaryLogDecoder} can be
+ * run without the game or log4j on the classpath.
+ */
+public class BinaryLogWriter implements Closeable {
+
+	static final int MAGIC = 0x574D424C; //WMBL
+	static final int VERSION = 1;
+
+	static final int DEFINE = 0;
+	static final int EVENT = 1;
+
+	static final int REF_ABSENT = 0;
+	static final int REF_LITERAL = 1;
+	static final int FIRST_ID = 2;
+
+	private static final int MAX_INTERNED = 16384;
+	private static final int MAX_INTERNED_LENGTH = 512;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final OutputStream out;
+	private final HashMap<String, Integer> interned = new HashMap<>();
+	private final Record record = new Record();
+	private int nextId = FIRST_ID;
+	private long lastTime;
+	private boolean closed;
+
+	public BinaryLogWriter(Path file) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+		this.out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), BUFFER_SIZE);
+		this.lastTime = System.currentTimeMillis();
+
+		Record header = new Record();
+		header.writeInt(MAGIC);
+		header.writeByte(VERSION);
+		header.writeVarLong(lastTime);
+		header.writeTo(out);
+	}
+
+	/**
+	 * Writes a single event.
+	 *
+	 * @param format the message, or its format string when {@code params} is not null
+	 * @param params the already stringified message parameters, or null
+	 * @param thrown the rendered stack trace, or null
+	 */
+	public synchronized void write(long time, String level, String thread, String logger, String marker, String format, String[] params, String thrown, boolean flush) throws IOException {
+		if(closed) {
+			return;
+		}
+		int levelRef = intern(level);
+		int threadRef = intern(thread);
+		int loggerRef = intern(logger);
+		int markerRef = intern(marker);
+		int formatRef = intern(format);
+
+		record.reset();
+		record.writeByte(EVENT);
+		record.writeVarLong(zigZag(time - lastTime));
+		record.writeRef(levelRef, level);
+		record.writeRef(threadRef, thread);
+		record.writeRef(loggerRef, logger);
+		record.writeRef(markerRef, marker);
+		record.writeRef(formatRef, format);
+		if(params == null) {
+			record.writeVarInt(0);
+		}
+		else {
+			record.writeVarInt(params.length);
+			for(String param : params) {
+				record.writeString(param);
+			}
+		}
+		record.writeRef(thrown == null ? REF_ABSENT : REF_LITERAL, thrown);
+		writeRecord(record);
+		lastTime = time;
+
+		if(flush) {
+			out.flush();
+		}
+	}
+
+	public synchronized void flush() throws IOException {
+		if(!closed) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if(!closed) {
+			closed = true;
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the id of the string, {@link #REF_ABSENT} if it is null, or
+	 * {@link #REF_LITERAL} if it should be written inline
+	 */
+	private int intern(String s) throws IOException {
+		if(s == null) {
+			return REF_ABSENT;
+		}
+		Integer id = interned.get(s);
+		if(id != null) {
+			return id;
+		}
+		if(interned.size() >= MAX_INTERNED || s.length() > MAX_INTERNED_LENGTH) {
+			return REF_LITERAL;
+		}
+		id = nextId++;
+		interned.put(s, id);
+
+		record.reset();
+		record.writeByte(DEFINE);
+		record.writeVarInt(id);
+		record.writeString(s);
+		writeRecord(record);
+		return id;
+	}
+
+	private void writeRecord(Record r) throws IOException {
+		Record.writeVarInt(out, r.size);
+		r.writeTo(out);
+	}
+
+	private static long zigZag(long l) {
+		return (l << 1) ^ (l >> 63);
+	}
+
+	private static final class Record {
+		private byte[] buf = new byte[256];
+		private int size;
+
+		void reset() {
+			size = 0;
+		}
+
+		void writeByte(int b) {
+			ensure(1);
+			buf[size++] = (byte) b;
+		}
+
+		void writeInt(int i) {
+			writeByte(i >>> 24);
+			writeByte(i >>> 16);
+			writeByte(i >>> 8);
+			writeByte(i);
+		}
+
+		void writeVarInt(int i) {
+			writeVarLong(i & 0xFFFFFFFFL);
+		}
+
+		void writeVarLong(long l) {
+			while((l & ~0x7FL) != 0) {
+				writeByte((int) ((l & 0x7F) | 0x80));
+				l >>>= 7;
+			}
+			writeByte((int) l);
+		}
+
+		void writeString(String s) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buf, size, bytes.length);
+			size += bytes.length;
+		}
+
+		void writeRef(int ref, String s) {
+			writeVarInt(ref);
+			if(ref == REF_LITERAL) {
+				writeString(s);
+			}
+		}
+
+		void writeTo(OutputStream out) throws IOException {
+			out.write(buf, 0, size);
+		}
+
+		private void ensure(int extra) {
+			if(size + extra > buf.length) {
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+			}
+		}
+
+		static void writeVarInt(OutputStream out, int i) throws IOException {
+			while((i & ~0x7F) != 0) {
+				out.write((i & 0x7F) | 0x80);
+				i >>>= 7;
+			}
+			out.write(i);
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * A log4j appender that writes one JSON object per line:
+ *
+ * <pre>{"time":1700000000000,"thread":"main","level":"INFO","logger":"Fabric Loader","category":"GameProvider","message":"...","throwable":"..."}</pre>
+ *
+ * {@code category} is the event's marker, which is where {@link Logger} puts the fabric LogCategory name.
+ * {@code category} and {@code throwable} are omitted when absent.
+ */
+public class JsonLogAppender extends AbstractAppender {
+
+	private final OutputStream out;
+
+	protected JsonLogAppender(String name, OutputStream out) {
+		super(name, null, null, true, Property.EMPTY_ARRAY);
+		this.out = out;
+	}
+
+	public static JsonLogAppender create(String name, Path file, int maxRollovers) throws IOException {
+		LogFiles.rotate(file, maxRollovers);
+		Path parent = file.toAbsolutePath().getParent();
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+		OutputStream out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), 1 << 16);
+		return new JsonLogAppender(name, out);
+	}
+
+	@Override
+	public void append(LogEvent event) {
+		JsonLogEncoder encoder = JsonLogEncoder.get();
+		Marker marker = event.getMarker();
+		Message message = event.getMessage();
+		CharSequence text;
+		if(message instanceof StringBuilderFormattable) {
+			StringBuilder scratch = encoder.scratch();
+			((StringBuilderFormattable) message).formatTo(scratch);
+			text = scratch;
+		}
+		else {
+			text = message.getFormattedMessage();
+		}
+
+		encoder.begin()
+			.field("time", event.getTimeMillis())
+			.field("thread", event.getThreadName())
+			.field("level", event.getLevel().name())
+			.field("logger", event.getLoggerName())
+			.field("category", marker == null ? null : marker.getName())
+			.field("message", text)
+			.field("throwable", event.getThrown())
+			.end();
+
+		try {
+			synchronized(out) {
+				encoder.writeTo(out);
+				if(event.getLevel().isMoreSpecificThan(Level.ERROR)) {
+					out.flush();
+				}
+			}
+		}
+		catch(IOException e) {
+			error("Could not write to JSON log", event, e);
+		}
+	}
+
+	@Override
+	public boolean stop(long timeout, TimeUnit timeUnit) {
+		setStopping();
+		boolean stopped = super.stop(timeout, timeUnit, false);
+		try {
+			synchronized(out) {
+				out.close();
+			}
+		}
+		catch(IOException e) {
+			error("Could not close JSON log", e);
+			stopped = false;
+		}
+		setStopped();
+		return stopped;
+	}
+
+}
@@ -0,0 +1,241 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Encodes log events as single line JSON objects directly into UTF-8 bytes.
+ *
+ * Each thread gets its own encoder (see {@link #get()}) whose buffer is reused
+ * for every event, so encoding an event does not allocate beyond the occasional
+ * buffer growth. Stack traces are streamed into the same buffer.
+ */
+public final class JsonLogEncoder {
+
+	private static final ThreadLocal<JsonLogEncoder> ENCODERS = ThreadLocal.withInitial(JsonLogEncoder::new);
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+	private static final int MAX_RETAINED_BUFFER = 1 << 16;
+
+	private byte[] buf = new byte[1024];
+	private int size;
+	private boolean first;
+	private final PrintWriter stackTraceWriter = new PrintWriter(new StackTraceWriter(), false);
+	private StringBuilder scratch = new StringBuilder(256);
+
+	private JsonLogEncoder() {}
+
+	public static JsonLogEncoder get() {
+		return ENCODERS.get();
+	}
+
+	/**
+	 * @return an empty StringBuilder owned by this thread's encoder, for formatting
+	 * a message before passing it to {@link #field(String, CharSequence)}
+	 */
+	public StringBuilder scratch() {
+		if(scratch.capacity() > MAX_RETAINED_BUFFER) {
+			scratch = new StringBuilder(256);
+		}
+		scratch.setLength(0);
+		return scratch;
+	}
+
+	public JsonLogEncoder begin() {
+		if(buf.length > MAX_RETAINED_BUFFER) {
+			buf = new byte[1024]; //don't hold on to the buffer a huge stack trace needed
+		}
+		size = 0;
+		first = true;
+		writeByte('{');
+		return this;
+	}
+
+	public JsonLogEncoder field(String name, long value) {
+		name(name);
+		writeAscii(Long.toString(value));
+		return this;
+	}
+
+	public JsonLogEncoder field(String name, CharSequence value) {
+		if(value != null) {
+			name(name);
+			writeByte('"');
+			writeEscaped(value);
+			writeByte('"');
+		}
+		return this;
+	}
+
+	public JsonLogEncoder field(String name, Throwable t) {
+		if(t != null) {
+			name(name);
+			writeByte('"');
+			t.printStackTrace(stackTraceWriter);
+			stackTraceWriter.flush();
+			writeByte('"');
+		}
+		return this;
+	}
+
+	public JsonLogEncoder end() {
+		writeByte('}');
+		writeByte('\n');
+		return this;
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(buf, 0, size);
+	}
+
+	private void name(String name) {
+		if(!first) {
+			writeByte(',');
+		}
+		first = false;
+		writeByte('"');
+		writeAscii(name);
+		writeByte('"');
+		writeByte(':');
+	}
+
+	private void writeAscii(String s) {
+		ensure(s.length());
+		for(int i = 0; i < s.length(); i++) {
+			buf[size++] = (byte) s.charAt(i);
+		}
+	}
+
+	private void writeEscaped(CharSequence s) {
+		for(int i = 0; i < s.length(); i++) {
+			writeEscaped(s.charAt(i), i + 1 < s.length() ? s.charAt(i + 1) : 0);
+			if(Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+				i++;
+			}
+		}
+	}
+
+	private void writeEscaped(char c, char next) {
+		ensure(6);
+		switch(c) {
+			case '"':
+				buf[size++] = '\\';
+				buf[size++] = '"';
+				return;
+			case '\\':
+				buf[size++] = '\\';
+				buf[size++] = '\\';
+				return;
+			case '\n':
+				buf[size++] = '\\';
+				buf[size++] = 'n';
+				return;
+			case '\r':
+				buf[size++] = '\\';
+				buf[size++] = 'r';
+				return;
+			case '\t':
+				buf[size++] = '\\';
+				buf[size++] = 't';
+				return;
+		}
+		if(c < 0x20) {
+			buf[size++] = '\\';
+			buf[size++] = 'u';
+			buf[size++] = '0';
+			buf[size++] = '0';
+			buf[size++] = HEX[c >> 4];
+			buf[size++] = HEX[c & 0xF];
+		}
+		else if(c < 0x80) {
+			buf[size++] = (byte) c;
+		}
+		else if(c < 0x800) {
+			buf[size++] = (byte) (0xC0 | (c >> 6));
+			buf[size++] = (byte) (0x80 | (c & 0x3F));
+		}
+		else if(Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+			int codePoint = Character.toCodePoint(c, next);
+			buf[size++] = (byte) (0xF0 | (codePoint >> 18));
+			buf[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+			buf[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+			buf[size++] = (byte) (0x80 | (codePoint & 0x3F));
+		}
+		else if(Character.isSurrogate(c)) {
+			buf[size++] = '?'; //unpaired surrogate, not representable in UTF-8
+		}
+		else {
+			buf[size++] = (byte) (0xE0 | (c >> 12));
+			buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			buf[size++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	private void writeByte(int b) {
+		ensure(1);
+		buf[size++] = (byte) b;
+	}
+
+	private void ensure(int extra) {
+		if(size + extra > buf.length) {
+			buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+		}
+	}
+
+	/**
+	 * Escapes whatever printStackTrace writes straight into the encoder's buffer.
+	 */
+	private final class StackTraceWriter extends Writer {
+
+		private char pendingHigh;
+
+		@Override
+		public void write(char[] chars, int off, int len) {
+			for(int i = off; i < off + len; i++) {
+				write(chars[i]);
+			}
+		}
+
+		@Override
+		public void write(String s, int off, int len) {
+			for(int i = off; i < off + len; i++) {
+				write(s.charAt(i));
+			}
+		}
+
+		@Override
+		public void write(int c) {
+			char ch = (char) c;
+			if(pendingHigh != 0) {
+				char high = pendingHigh;
+				pendingHigh = 0;
+				writeEscaped(high, ch);
+				if(Character.isLowSurrogate(ch)) {
+					return;
+				}
+			}
+			if(Character.isHighSurrogate(ch)) {
+				pendingHigh = ch;
+				return;
+			}
+			writeEscaped(ch, (char) 0);
+		}
+
+		@Override
+		public void flush() {
+			if(pendingHigh != 0) {
+				writeEscaped(pendingHigh, (char) 0);
+				pendingHigh = 0;
+			}
+		}
+
+		@Override
+		public void close() {
+			flush();
+		}
+
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public class LogFiles {
+
+	/**
+	 * Shifts {@code <name>.<ext>} to {@code <name>-1.<ext>}, {@code <name>-1.<ext>} to
+	 * {@code <name>-2.<ext>} and so on, deleting anything past {@code max}.
+	 */
+	public static void rotate(Path file, int max) throws IOException {
+		if(!Files.exists(file)) {
+			return;
+		}
+		String name = file.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		String base = dot == -1 ? name : name.substring(0, dot);
+		String extension = dot == -1 ? "" : name.substring(dot);
+
+		Files.deleteIfExists(file.resolveSibling(base + "-" + max + extension));
+		for(int i = max - 1; i > 0; i--) {
+			Path older = file.resolveSibling(base + "-" + i + extension);
+			if(Files.exists(older)) {
+				Files.move(older, file.resolveSibling(base + "-" + (i + 1) + extension), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		Files.move(file, file.resolveSibling(base + "-1" + extension), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
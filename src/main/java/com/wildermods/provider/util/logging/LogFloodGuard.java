@@ -0,0 +1,234 @@
+package com.wildermods.provider.util.logging;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.MarkerManager;
+
+/**
+ * Rate limits repeated log events.
+ *
+ * Events are keyed by level, logger, category and a fingerprint of the message
+ * (or of the stack trace, for throwables). Each key may log {@code limit} times per
+ * sliding window; anything beyond that is counted instead of logged, and the count
+ * is periodically reported as a single "Suppressed N repeats" line. Reports are made
+ * while events are being admitted, and by whoever calls {@link #sweep(long)}, so
+ * counts are still reported once logging goes quiet.
+ *
+ * Bookkeeping lives in a fixed number of independently locked, size bounded
+ * stripes so a mod throwing from many threads at once does not serialize on
+ * a single lock, and a flood of unique messages cannot grow the map without bound.
+ */
+public class LogFloodGuard {
+
+	private static final int STRIPES = 16;
+	private static final int KEYS_PER_STRIPE = 64;
+	private static final int FINGERPRINT_FRAMES = 8;
+	private static final int FINGERPRINT_CAUSES = 4;
+	static final long REPORT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+	private final int limit;
+	private final long window;
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final AtomicLong nextSweep;
+
+	public LogFloodGuard(int limit, long windowMillis) {
+		if(limit < 1 || windowMillis < 1) {
+			throw new IllegalArgumentException("limit and window must be positive");
+		}
+		this.limit = limit;
+		this.window = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		for(int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe();
+		}
+		this.nextSweep = new AtomicLong(System.nanoTime() + REPORT_INTERVAL);
+	}
+
+	/**
+	 * @return true if the event should be logged, false if it was suppressed
+	 */
+	public boolean admit(org.apache.logging.log4j.Logger target, LogLevel level, String category, String message, Throwable t) {
+		Key key = new Key(level, target.getName(), category, message, t == null ? 0 : fingerprint(t));
+		long now = System.nanoTime();
+		boolean admitted;
+		Stripe stripe = stripes[(key.hash ^ (key.hash >>> 16)) & (STRIPES - 1)];
+		synchronized(stripe) {
+			Entry entry = stripe.get(key);
+			if(entry == null) {
+				entry = new Entry(target, now, String.valueOf(message != null ? message : t));
+				stripe.put(key, entry);
+			}
+			admitted = entry.admit(now, window, limit);
+		}
+
+		long sweep = nextSweep.get();
+		if(now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + REPORT_INTERVAL)) {
+			sweep(now);
+		}
+		return admitted;
+	}
+
+	/**
+	 * Reports and resets suppression counts, and forgets keys that have gone quiet.
+	 * Summaries are logged outside of the stripe locks and straight to log4j, so they
+	 * are never suppressed themselves.
+	 */
+	public void sweep(long now) {
+		List<Summary> summaries = new ArrayList<>();
+		for(Stripe stripe : stripes) {
+			synchronized(stripe) {
+				summaries.addAll(stripe.evicted);
+				stripe.evicted.clear();
+				Iterator<Map.Entry<Key, Entry>> iterator = stripe.entrySet().iterator();
+				while(iterator.hasNext()) {
+					Map.Entry<Key, Entry> e = iterator.next();
+					Entry entry = e.getValue();
+					if(entry.suppressed > 0) {
+						summaries.add(new Summary(e.getKey(), entry));
+						entry.suppressed = 0;
+					}
+					else if(now - entry.windowStart > window * 2) {
+						iterator.remove();
+					}
+				}
+			}
+		}
+		for(Summary summary : summaries) {
+			summary.report();
+		}
+	}
+
+	private static int fingerprint(Throwable t) {
+		int hash = 1;
+		for(int depth = 0; t != null && depth < FINGERPRINT_CAUSES; depth++, t = t.getCause()) {
+			hash = 31 * hash + t.getClass().getName().hashCode();
+			StackTraceElement[] frames = t.getStackTrace();
+			for(int i = 0; i < frames.length && i < FINGERPRINT_FRAMES; i++) {
+				hash = 31 * hash + frames[i].hashCode();
+			}
+		}
+		return hash;
+	}
+
+	private static final class Key {
+		private final LogLevel level;
+		private final String logger;
+		private final String category;
+		private final String message;
+		private final int stack;
+		private final int hash;
+
+		private Key(LogLevel level, String logger, String category, String message, int stack) {
+			this.level = level;
+			this.logger = logger;
+			this.category = category;
+			this.message = message;
+			this.stack = stack;
+			this.hash = Objects.hash(level, logger, category, message, stack);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash
+				&& stack == other.stack
+				&& level == other.level
+				&& Objects.equals(logger, other.logger)
+				&& Objects.equals(category, other.category)
+				&& Objects.equals(message, other.message);
+		}
+	}
+
+	private static final class Entry {
+		private final org.apache.logging.log4j.Logger target;
+		private final String sample;
+		private long windowStart;
+		private int current;
+		private int previous;
+		private long suppressed;
+
+		private Entry(org.apache.logging.log4j.Logger target, long now, String sample) {
+			this.target = target;
+			this.windowStart = now;
+			this.sample = sample;
+		}
+
+		private boolean admit(long now, long window, int limit) {
+			long elapsed = now - windowStart;
+			if(elapsed >= window) {
+				long windows = elapsed / window;
+				previous = windows == 1 ? current : 0;
+				current = 0;
+				windowStart += windows * window;
+				elapsed -= windows * window;
+			}
+			//weight the previous window by how much of it still overlaps the sliding window
+			double estimate = previous * ((double)(window - elapsed) / window) + current;
+			if(estimate < limit) {
+				current++;
+				return true;
+			}
+			suppressed++;
+			return false;
+		}
+	}
+
+	private static final class Summary {
+		private final Key key;
+		private final org.apache.logging.log4j.Logger target;
+		private final String sample;
+		private final long suppressed;
+
+		private Summary(Key key, Entry entry) {
+			this.key = key;
+			this.target = entry.target;
+			this.sample = entry.sample;
+			this.suppressed = entry.suppressed;
+		}
+
+		private void report() {
+			String message = "Suppressed " + suppressed + " repeats of: " + sample;
+			if(key.category != null) {
+				target.log(key.level.toLog4j(), MarkerManager.getMarker(key.category), message);
+			}
+			else {
+				target.log(key.level.toLog4j(), message);
+			}
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Stripe extends LinkedHashMap<Key, Entry> {
+		private final List<Summary> evicted = new ArrayList<>();
+
+		private Stripe() {
+			super(KEYS_PER_STRIPE * 2, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			if(size() > KEYS_PER_STRIPE) {
+				if(eldest.getValue().suppressed > 0 && evicted.size() < KEYS_PER_STRIPE) {
+					evicted.add(new Summary(eldest.getKey(), eldest.getValue()));
+				}
+				return true;
+			}
+			return false;
+		}
+	}
+
+}
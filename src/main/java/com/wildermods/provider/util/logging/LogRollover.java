@@ -0,0 +1,168 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import net.fabricmc.loader.impl.util.log.Log;
+import net.fabricmc.loader.impl.util.log.LogCategory;
+
+/**
+ * Rolls over the previous session's logs without holding up the launch.
+ *
+ * At startup, before log4j opens them, {@code latest.log} and {@code debug.log} are only
+ * renamed to {@code <date>-<n>.log} and {@code debug-<date>-<n>.log}, the same names the
+ * appenders in log4j2.xml roll over to during a session, minus the {@code .gz}. Once the
+ * game is launched, {@link #compressInBackground(Path, long)} gzips them and deletes the
+ * oldest archives until all of them fit in the retention budget.
+ */
+public class LogRollover {
+
+	private static final String[] LIVE_LOGS = {"latest", "debug"};
+	private static final Pattern ARCHIVE = Pattern.compile("(debug-)?(\\d{4}-\\d{2}-\\d{2}-)?(\\d+)\\.log(\\.gz)?");
+	private static final long COMPRESSION_DELAY = TimeUnit.SECONDS.toMillis(30);
+
+	/**
+	 * Moves the previous session's logs out of the way. Must be called before log4j is initialized.
+	 */
+	public static void renameOnStartup(Path logs) {
+		for(String name : LIVE_LOGS) {
+			Path log = logs.resolve(name + ".log");
+			try {
+				if(!Files.exists(log) || Files.size(log) == 0) {
+					continue;
+				}
+				LocalDate date = LocalDate.ofInstant(Files.getLastModifiedTime(log).toInstant(), ZoneId.systemDefault());
+				String prefix = (name.equals("debug") ? "debug-" : "") + date + "-";
+				Files.move(log, logs.resolve(prefix + nextIndex(logs, prefix) + ".log"));
+			}
+			catch(IOException e) {
+				Log.warn(LogCategory.GAME_PROVIDER, "Could not roll over " + log + ", log4j will append to it", e);
+			}
+		}
+	}
+
+	/**
+	 * Compresses rolled over logs and enforces the retention budget on a low priority daemon
+	 * thread, after giving the game some time to start.
+	 *
+	 * @param maxBytes the most space all archived logs together may take up
+	 */
+	public static void compressInBackground(Path logs, long maxBytes) {
+		Thread thread = new Thread(() -> {
+			try {
+				Thread.sleep(COMPRESSION_DELAY);
+				compress(logs);
+				retain(logs, maxBytes);
+			}
+			catch(InterruptedException e) {
+				//shutting down
+			}
+			catch(Throwable t) {
+				Log.warn(LogCategory.GAME_PROVIDER, "Could not compress old logs", t);
+			}
+		}, "Provider Log Compression");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+	}
+
+	private static void compress(Path logs) throws IOException {
+		for(Path log : archives(logs)) {
+			String name = log.getFileName().toString();
+			if(name.endsWith(".gz")) {
+				continue;
+			}
+			Path compressed = log.resolveSibling(name + ".gz");
+			if(Files.exists(compressed)) {
+				continue; //log4j rolled over to the same name during this session, leave this one as it is
+			}
+			Path temp = log.resolveSibling(name + ".gz.tmp");
+			try(InputStream in = Files.newInputStream(log); OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+				in.transferTo(out);
+			}
+			Files.setLastModifiedTime(temp, Files.getLastModifiedTime(log));
+			try {
+				Files.move(temp, compressed, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException e) {
+				Files.move(temp, compressed);
+			}
+			Files.delete(log);
+		}
+	}
+
+	/**
+	 * Deletes the oldest archived logs until the rest fit in {@code maxBytes}.
+	 */
+	private static void retain(Path logs, long maxBytes) throws IOException {
+		List<Path> archives = archives(logs);
+		Map<Path, Long> modified = new HashMap<>();
+		for(Path archive : archives) {
+			modified.put(archive, Files.getLastModifiedTime(archive).toMillis());
+		}
+		archives.sort((a, b) -> Long.compare(modified.get(b), modified.get(a)));
+
+		long total = 0;
+		int deleted = 0;
+		long freed = 0;
+		for(Path archive : archives) {
+			long size = Files.size(archive);
+			if(total + size <= maxBytes) {
+				total += size;
+				continue;
+			}
+			Files.delete(archive);
+			deleted++;
+			freed += size;
+		}
+		if(deleted > 0) {
+			Log.debug(LogCategory.GAME_PROVIDER, "Deleted " + deleted + " old logs (" + (freed >> 20) + "MB) to keep archived logs under " + (maxBytes >> 20) + "MB");
+		}
+	}
+
+	private static int nextIndex(Path logs, String prefix) throws IOException {
+		int highest = 0;
+		for(Path archive : archives(logs)) {
+			String name = archive.getFileName().toString();
+			if(name.startsWith(prefix)) {
+				Matcher matcher = ARCHIVE.matcher(name);
+				if(matcher.matches()) {
+					highest = Math.max(highest, Integer.parseInt(matcher.group(3)));
+				}
+			}
+		}
+		return highest + 1;
+	}
+
+	private static List<Path> archives(Path logs) throws IOException {
+		List<Path> archives = new ArrayList<>();
+		if(!Files.isDirectory(logs)) {
+			return archives;
+		}
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(logs)) {
+			for(Path file : files) {
+				if(ARCHIVE.matcher(file.getFileName().toString()).matches()) {
+					archives.add(file);
+				}
+			}
+		}
+		return archives;
+	}
+
+}
@@ -1,16 +1,40 @@
 package com.wildermods.provider.util.logging;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.config.AppenderRef;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.LoggerConfig;
 
 import org.apache.logging.log4j.core.LoggerContext; // <- must be core!
 import net.fabricmc.loader.impl.util.log.LogCategory;
 
 public class Logger implements ILogger {
 	
+	private static final LongAdder[] LOGGED = newCounters();
+	private static final LongAdder[] SUPPRESSED = newCounters();
+	private static volatile LogFloodGuard floodGuard = new LogFloodGuard(20, 1000);
+	
+	private static final ConcurrentHashMap<String, Logger> LOGGERS = new ConcurrentHashMap<>();
+	private static final long LEVEL_BATCH_DELAY_MILLIS = 50;
+	private static final Map<Logger, LogLevel> PENDING_LEVELS = new LinkedHashMap<>();
+	private static final Object APPLYING_LEVELS = new Object();
+	private static ScheduledExecutorService scheduler;
+	private static boolean levelsScheduled;
+	
 	private static final LogLevel DEFAULT_LEVEL;
 	static {
 		Configuration logConfig = ((LoggerContext)LogManager.getContext(false)).getConfiguration();
@@ -24,20 +48,31 @@ public class Logger implements ILogger {
 		Logger logger;
 		if(defaultLevel == null) {
 			DEFAULT_LEVEL = LogLevel.INFO;
-			logger = new Logger("Logger");
+			logger = get("Logger");
 			logger.warn("Could not find reference 'SysOut' in log4j configuration.", "init");
 		}
 		else {
 			DEFAULT_LEVEL = defaultLevel;
-			logger = new Logger("Logger");
+			logger = get("Logger");
 		}
 		LogLevel level = DEFAULT_LEVEL;
 		if(level.ordinal() < LogLevel.INFO.ordinal()) {
 			level = LogLevel.INFO;
 		}
 		logger.log(level, "Logging " + DEFAULT_LEVEL + " or higher");
+		
+		scheduler().scheduleWithFixedDelay(Logger::sweepFloodGuard, LogFloodGuard.REPORT_INTERVAL, LogFloodGuard.REPORT_INTERVAL, TimeUnit.NANOSECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(Logger::sweepFloodGuard, "Provider Log Flood Summary"));
 	}
+	
 	private final org.apache.logging.log4j.Logger logger;
+	private volatile LogLevel level;
+	
+	/**
+	 * The level this logger was given which log4j hasn't been told about yet, if any.
+	 * Until it has, this logger filters by it itself.
+	 */
+	private volatile LogLevel pendingLevel;
 	
 	public Logger(Class clazz) {
 		this(clazz.getSimpleName(), DEFAULT_LEVEL);
@@ -53,17 +88,129 @@ public class Logger implements ILogger {
 	
 	public Logger(String name, LogLevel minLevel) {
 		this.logger = LogManager.getLogger(name);
-		Configurator.setLevel(logger, minLevel.toLog4j());
+		setLevel(minLevel);
+	}
+	
+	/**
+	 * @return the shared Logger for the given class' simple name, logging at the default level or higher
+	 * @see #get(String, LogLevel)
+	 */
+	public static Logger get(Class<?> clazz) {
+		return get(clazz.getSimpleName(), DEFAULT_LEVEL);
+	}
+	
+	/**
+	 * @see #get(String, LogLevel)
+	 */
+	public static Logger get(Class<?> clazz, LogLevel minLevel) {
+		return get(clazz.getSimpleName(), minLevel);
+	}
+	
+	/**
+	 * @see #get(String, LogLevel)
+	 */
+	public static Logger get(String name) {
+		return get(name, LogLevel.INFO);
+	}
+	
+	/**
+	 * Prefer this to the constructors. Loggers are created once per name and shared, and only
+	 * asking for a different level than the shared logger already has changes its level.
+	 * 
+	 * @return the shared Logger with the given name
+	 */
+	public static Logger get(String name, LogLevel minLevel) {
+		Logger logger = LOGGERS.computeIfAbsent(name, n -> new Logger(n, minLevel));
+		if(logger.level != minLevel) {
+			logger.setLevel(minLevel);
+		}
+		return logger;
+	}
+	
+	/**
+	 * Sets the lowest level this logger logs. Telling log4j about it is deferred briefly and
+	 * batched with other level changes, as each one makes log4j update every logger it has.
+	 * Until then this logger applies the level itself, and logging an event log4j would still
+	 * discard applies the batch first.
+	 */
+	public void setLevel(LogLevel minLevel) {
+		level = minLevel;
+		pendingLevel = minLevel;
+		synchronized(PENDING_LEVELS) {
+			PENDING_LEVELS.remove(this); //the last level set for a name wins
+			PENDING_LEVELS.put(this, minLevel);
+			if(!levelsScheduled) {
+				levelsScheduled = true;
+				scheduler().schedule(Logger::applyPendingLevels, LEVEL_BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+	
+	/**
+	 * The one thread the Loggers schedule their own work on, created when first needed.
+	 */
+	private static synchronized ScheduledExecutorService scheduler() {
+		if(scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "Provider Logging");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return scheduler;
+	}
+	
+	/**
+	 * Reports repeats the flood guard suppressed since its last report, even if nothing has
+	 * been logged since.
+	 */
+	private static void sweepFloodGuard() {
+		LogFloodGuard guard = floodGuard;
+		if(guard != null) {
+			guard.sweep(System.nanoTime());
+		}
+	}
+	
+	/**
+	 * Immediately tells log4j about every level set since it was last told, in one reconfiguration.
+	 */
+	public static void applyPendingLevels() {
+		synchronized(APPLYING_LEVELS) { //callers return once a batch another thread took is applied too
+			Map<Logger, LogLevel> batch;
+			synchronized(PENDING_LEVELS) {
+				levelsScheduled = false;
+				if(PENDING_LEVELS.isEmpty()) {
+					return;
+				}
+				batch = new LinkedHashMap<>(PENDING_LEVELS);
+				PENDING_LEVELS.clear();
+			}
+			Map<String, Level> levels = new LinkedHashMap<>();
+			for(Map.Entry<Logger, LogLevel> entry : batch.entrySet()) {
+				levels.put(entry.getKey().logger.getName(), entry.getValue().toLog4j());
+			}
+			Configurator.setLevel(levels);
+			for(Map.Entry<Logger, LogLevel> entry : batch.entrySet()) {
+				Logger logger = entry.getKey();
+				if(logger.pendingLevel == entry.getValue()) {
+					logger.pendingLevel = null;
+				}
+			}
+		}
 	}
 	
 	@Override
 	public void log(LogLevel level, String s) {
-		logger.log(level.toLog4j(), s);
+		if(admit(level, null, s, null)) {
+			logger.log(level.toLog4j(), s);
+		}
 	}
 	
 	public void log(LogLevel level, String s, String tag) {
 		if(tag != null) {
-			logger.log(level.toLog4j(), MarkerManager.getMarker(tag), s);
+			if(admit(level, tag, s, null)) {
+				logger.log(level.toLog4j(), MarkerManager.getMarker(tag), s);
+			}
 		}
 		else {
 			log(level, s);
@@ -72,12 +219,38 @@ public class Logger implements ILogger {
 
 	@Override
 	public void catching(LogLevel level, Throwable t) {
-		logger.catching(level.toLog4j(), t);
+		if(admit(level, null, null, t)) {
+			logger.catching(level.toLog4j(), t);
+		}
 	}
 
 	@Override
 	public void catching(LogLevel level, Throwable t, String marker) {
-		logger.log(level.toLog4j(), MarkerManager.getMarker(marker), t.getMessage(), t);
+		if(admit(level, marker, null, t)) {
+			logger.log(level.toLog4j(), MarkerManager.getMarker(marker), t.getMessage(), t);
+		}
+	}
+	
+	private boolean admit(LogLevel level, String category, String message, Throwable t) {
+		LogLevel pending = pendingLevel;
+		if(pending != null) {
+			if(level.ordinal() < pending.ordinal()) {
+				return false;
+			}
+			if(!logger.isEnabled(level.toLog4j())) {
+				applyPendingLevels(); //log4j doesn't know this logger was lowered yet
+			}
+		}
+		if(!logger.isEnabled(level.toLog4j())) {
+			return true; //log4j will discard it
+		}
+		LogFloodGuard guard = floodGuard;
+		if(guard == null || guard.admit(logger, level, category, message, t)) {
+			LOGGED[level.ordinal()].increment();
+			return true;
+		}
+		SUPPRESSED[level.ordinal()].increment();
+		return false;
 	}
 	
 	@Override
@@ -93,7 +266,76 @@ public class Logger implements ILogger {
 
 	@Override
 	public boolean shouldLog(LogLevel level) {
+		LogLevel pending = pendingLevel;
+		if(pending != null) {
+			return level.ordinal() >= pending.ordinal();
+		}
 		return logger.getLevel().isLessSpecificThan(level.toLog4j());
 	}
+	
+	/**
+	 * @return how many events of the given level all Loggers have passed on to log4j
+	 */
+	public static long getLoggedCount(LogLevel level) {
+		return LOGGED[level.ordinal()].sum();
+	}
+	
+	/**
+	 * @return how many events of the given level were dropped as repeats
+	 * @see #configureFloodGuard(int, long)
+	 */
+	public static long getSuppressedCount(LogLevel level) {
+		return SUPPRESSED[level.ordinal()].sum();
+	}
+	
+	private static LongAdder[] newCounters() {
+		LongAdder[] counters = new LongAdder[LogLevel.values().length];
+		for(int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		return counters;
+	}
+	
+	/**
+	 * Limits how often an identical event may be logged by any Logger.
+	 * 
+	 * @param limit how many repeats of the same event are logged per window, or 0 to disable suppression
+	 * @param windowMillis the length of the sliding window
+	 */
+	public static void configureFloodGuard(int limit, long windowMillis) {
+		sweepFloodGuard(); //report what the old guard suppressed
+		floodGuard = limit > 0 ? new LogFloodGuard(limit, windowMillis) : null;
+	}
+	
+	/**
+	 * Replaces the text 'DebugFile' appender with a {@link BinaryLogAppender} writing to the given file.
+	 * The result can be turned back into text with {@link BinaryLogDecoder}.
+	 */
+	public static void enableBinaryDebugLog(Path file) throws IOException {
+		attachAppender(BinaryLogAppender.create("BinaryDebugFile", file, 5), Level.TRACE, "DebugFile");
+	}
+	
+	/**
+	 * Additionally writes everything the 'File' appender receives to the given file as JSON lines.
+	 * 
+	 * @see JsonLogAppender
+	 */
+	public static void enableJsonLog(Path file) throws IOException {
+		attachAppender(JsonLogAppender.create("JsonFile", file, 5), Level.INFO, null);
+	}
+	
+	private static void attachAppender(Appender appender, Level level, String replaces) {
+		LoggerContext context = (LoggerContext)LogManager.getContext(false);
+		Configuration logConfig = context.getConfiguration();
+		appender.start();
+		logConfig.addAppender(appender);
+		
+		LoggerConfig root = logConfig.getRootLogger();
+		if(replaces != null) {
+			root.removeAppender(replaces);
+		}
+		root.addAppender(appender, level, null);
+		context.updateLoggers();
+	}
 
 }
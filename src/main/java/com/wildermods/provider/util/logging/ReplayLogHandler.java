@@ -0,0 +1,189 @@
+package com.wildermods.provider.util.logging;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.fabricmc.loader.impl.util.log.LogCategory;
+import net.fabricmc.loader.impl.util.log.LogHandler;
+
+/**
+ * Stands in for Fabric's builtin log handler until the provider {@link Logger} is ready.
+ *
+ * Like the builtin handler, events are printed to the console and kept so they end up in the
+ * log files too, but at most {@code capacity} of them are kept. Once full the oldest are dropped
+ * and counted, see {@link #getDroppedCount(LogLevel)}. {@link #handOff(LogHandler)} then feeds
+ * the kept events to the real handler from a background thread, oldest first, releasing each
+ * as it goes, so startup is not held up by it. A shutdown hook finishes the replay if the game
+ * exits before that thread does. Events logged while that is happening queue up behind them,
+ * so order is kept, and once the queue is empty every event goes straight to the real handler.
+ */
+public class ReplayLogHandler implements LogHandler {
+
+	private static final LongAdder[] DROPPED = newCounters();
+
+	private final Object lock = new Object();
+	private final Object draining = new Object();
+	private final ArrayDeque<Event> events = new ArrayDeque<>();
+	private int capacity;
+	private volatile LogHandler target;
+	private volatile boolean direct;
+	private boolean warned;
+
+	public ReplayLogHandler(int capacity) {
+		this.capacity = Math.max(0, capacity);
+	}
+
+	/**
+	 * Changes how many events are kept until {@link #handOff(LogHandler)}, dropping the oldest
+	 * if more than that are already kept.
+	 */
+	public void setCapacity(int capacity) {
+		synchronized(lock) {
+			this.capacity = Math.max(0, capacity);
+			trim();
+		}
+	}
+
+	/**
+	 * Starts passing the kept events to {@code handler}, and later every event.
+	 */
+	public void handOff(LogHandler handler) {
+		synchronized(lock) {
+			if(target != null) {
+				throw new IllegalStateException("Already handed off to " + target);
+			}
+			target = handler;
+		}
+		Thread thread = new Thread(this::drain, "Provider Log Replay");
+		thread.setDaemon(true);
+		thread.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "Provider Log Replay Shutdown"));
+	}
+
+	@Override
+	public void log(long time, net.fabricmc.loader.impl.util.log.LogLevel level, LogCategory category, String msg, Throwable exc, boolean fromReplay, boolean wasSuppressed) {
+		if(!direct) {
+			synchronized(lock) {
+				if(!direct) {
+					boolean printed = false;
+					if(target == null && !fromReplay) {
+						print(time, level, category, msg, exc);
+						printed = true;
+					}
+					events.add(new Event(time, level, category, msg, exc, fromReplay || printed, wasSuppressed));
+					trim();
+					return;
+				}
+			}
+		}
+		target.log(time, level, category, msg, exc, fromReplay, wasSuppressed);
+	}
+
+	@Override
+	public boolean shouldLog(net.fabricmc.loader.impl.util.log.LogLevel level, LogCategory category) {
+		LogHandler handler = target;
+		return handler == null || handler.shouldLog(level, category);
+	}
+
+	@Override
+	public void close() {
+		//no-op
+	}
+
+	/**
+	 * @return how many events of the given level were dropped before they could be handed off
+	 */
+	public static long getDroppedCount(LogLevel level) {
+		return DROPPED[level.ordinal()].sum();
+	}
+
+	/**
+	 * Feeds the queued events to the target until the queue is empty. Only one thread drains
+	 * at a time, so if the shutdown hook runs while the background thread is still at it,
+	 * it waits and then carries on from where that left off.
+	 */
+	private void drain() {
+		synchronized(draining) {
+			if(!warned) {
+				warned = true;
+				long dropped = 0;
+				for(LongAdder counter : DROPPED) {
+					dropped += counter.sum();
+				}
+				if(dropped > 0) {
+					target.log(System.currentTimeMillis(), net.fabricmc.loader.impl.util.log.LogLevel.WARN, LogCategory.LOG, dropped + " early log events were dropped from the replay buffer, they were only printed to the console", null, false, false);
+				}
+			}
+			while(!direct) {
+				Event event;
+				synchronized(lock) {
+					event = events.poll();
+					if(event == null) {
+						direct = true;
+						return;
+					}
+				}
+				try {
+					target.log(event.time, event.level, event.category, event.msg, event.exc, event.fromReplay, event.wasSuppressed);
+				}
+				catch(Throwable t) {
+					t.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private void trim() {
+		while(events.size() > capacity) {
+			Event event = events.poll();
+			if(target != null && !event.fromReplay) {
+				print(event.time, event.level, event.category, event.msg, event.exc); //never shown anywhere else
+			}
+			DROPPED[LogLevel.getLevel(event.level).ordinal()].increment();
+		}
+	}
+
+	/**
+	 * Prints the way Fabric's builtin handler does.
+	 */
+	private static void print(long time, net.fabricmc.loader.impl.util.log.LogLevel level, LogCategory category, String msg, Throwable exc) {
+		if(level.isLessThan(net.fabricmc.loader.impl.util.log.LogLevel.INFO)) {
+			return;
+		}
+		PrintStream out = level == net.fabricmc.loader.impl.util.log.LogLevel.ERROR ? System.err : System.out;
+		out.printf("[%tT] [%s] [%s/%s]: %s%n", time, level.name(), category.context, category.name, msg);
+		if(exc != null) {
+			exc.printStackTrace(out);
+		}
+	}
+
+	private static LongAdder[] newCounters() {
+		LongAdder[] counters = new LongAdder[LogLevel.values().length];
+		for(int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		return counters;
+	}
+
+	private static final class Event {
+		private final long time;
+		private final net.fabricmc.loader.impl.util.log.LogLevel level;
+		private final LogCategory category;
+		private final String msg;
+		private final Throwable exc;
+		private final boolean fromReplay;
+		private final boolean wasSuppressed;
+
+		private Event(long time, net.fabricmc.loader.impl.util.log.LogLevel level, LogCategory category, String msg, Throwable exc, boolean fromReplay, boolean wasSuppressed) {
+			this.time = time;
+			this.level = level;
+			this.category = category;
+			this.msg = msg;
+			this.exc = exc;
+			this.fromReplay = fromReplay;
+			this.wasSuppressed = wasSuppressed;
+		}
+	}
+
+}
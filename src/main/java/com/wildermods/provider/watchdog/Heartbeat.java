@@ -0,0 +1,50 @@
+package com.wildermods.provider.watchdog;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts frames rendered by the game. {@link com.wildermods.provider.patch.RenderLoopPatch}
+ * makes the libGDX render loop call {@link #beat()} once per frame.
+ *
+ * The game and the provider may each end up with their own copy of this class if it is
+ * loaded by more than one class loader, so every other copy uses the counter of the copy
+ * loaded by the system class loader, which is where the provider itself is loaded from.
+ */
+public final class Heartbeat {
+
+	private static final AtomicLong FRAMES = shared();
+
+	private Heartbeat() {}
+
+	public static void beat() {
+		FRAMES.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of frames rendered so far, 0 if the render loop has not started
+	 */
+	public static long getFrames() {
+		return FRAMES.get();
+	}
+
+	private static AtomicLong shared() {
+		try {
+			Class<?> system = Class.forName(Heartbeat.class.getName(), true, ClassLoader.getSystemClassLoader());
+			if(system != Heartbeat.class) {
+				Method frames = system.getDeclaredMethod("frames");
+				frames.setAccessible(true);
+				return (AtomicLong) frames.invoke(null);
+			}
+		}
+		catch(ReflectiveOperationException | LinkageError | RuntimeException e) {
+			//not on the system classpath, count on our own
+		}
+		return new AtomicLong();
+	}
+	
+	private static AtomicLong frames() {
+		return FRAMES;
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.wildermods.provider.watchdog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.wildermods.provider.util.logging.LogLevel;
+import com.wildermods.provider.util.logging.Logger;
+
+/**
+ * Watches the {@link Heartbeat} of the game's main thread. When no frame has been rendered
+ * for longer than the threshold, the main thread's stack is sampled a few times a second
+ * and a summary of where it was stuck is logged.
+ *
+ * While the game is running normally the watchdog only wakes up twice a second to read
+ * a counter. Stacks are only ever sampled during a stall.
+ */
+public class StallWatchdog implements Runnable {
+
+	private static final long CHECK_INTERVAL = 500;
+	private static final long SAMPLE_INTERVAL = 200;
+	private static final int MAX_SAMPLES = 50;
+	private static final int REPORTED_STACKS = 3;
+	private static final int REPORTED_FRAMES = 16;
+
+	private final Thread watched;
+	private final long thresholdNanos;
+	private final Logger logger = Logger.get("Watchdog");
+
+	private StallWatchdog(Thread watched, long thresholdMillis) {
+		this.watched = watched;
+		this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+	}
+
+	public static StallWatchdog start(Thread watched, long thresholdMillis) {
+		StallWatchdog watchdog = new StallWatchdog(watched, thresholdMillis);
+		Thread thread = new Thread(watchdog, "Provider Watchdog");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.start();
+		return watchdog;
+	}
+
+	@Override
+	public void run() {
+		long lastBeat = Heartbeat.getFrames();
+		long lastChange = System.nanoTime();
+		try {
+			while(watched.isAlive()) {
+				Thread.sleep(CHECK_INTERVAL);
+				long beat = Heartbeat.getFrames();
+				if(beat != lastBeat) {
+					lastBeat = beat;
+					lastChange = System.nanoTime();
+				}
+				else if(beat != 0 && System.nanoTime() - lastChange > thresholdNanos) { //the game is still loading until the first frame
+					sample(beat, lastChange);
+					lastBeat = Heartbeat.getFrames();
+					lastChange = System.nanoTime();
+				}
+			}
+		}
+		catch(InterruptedException e) {
+			//stopped
+		}
+	}
+
+	private void sample(long beat, long stalledSince) throws InterruptedException {
+		Map<String, Sample> stacks = new HashMap<>();
+		int samples = 0;
+		long firstSample = System.nanoTime();
+		while(samples < MAX_SAMPLES && Heartbeat.getFrames() == beat && watched.isAlive()) {
+			Thread.State state = watched.getState();
+			StackTraceElement[] stack = watched.getStackTrace();
+			StringBuilder key = new StringBuilder().append(state);
+			for(int i = 0; i < Math.min(stack.length, REPORTED_FRAMES); i++) {
+				key.append('\n').append(stack[i]);
+			}
+			stacks.computeIfAbsent(key.toString(), k -> new Sample(state, stack)).count++;
+			samples++;
+			Thread.sleep(SAMPLE_INTERVAL);
+		}
+		if(samples == 0) {
+			return;
+		}
+
+		boolean resumed = Heartbeat.getFrames() != beat;
+		StringBuilder report = new StringBuilder();
+		report.append("Main thread has not rendered a frame for ").append(seconds(System.nanoTime() - stalledSince))
+			.append(resumed ? ", it has since resumed. " : ". ")
+			.append(samples).append(" samples over ").append(seconds(System.nanoTime() - firstSample)).append(':');
+		List<Sample> common = new ArrayList<>(stacks.values());
+		common.sort((a, b) -> Integer.compare(b.count, a.count));
+		for(Sample sample : common.subList(0, Math.min(REPORTED_STACKS, common.size()))) {
+			report.append("\n  ").append(sample.count).append('/').append(samples).append(' ').append(sample.state);
+			for(int i = 0; i < Math.min(sample.stack.length, REPORTED_FRAMES); i++) {
+				report.append("\n\tat ").append(sample.stack[i]);
+			}
+			if(sample.stack.length > REPORTED_FRAMES) {
+				report.append("\n\t... ").append(sample.stack.length - REPORTED_FRAMES).append(" more");
+			}
+		}
+		if(common.size() > REPORTED_STACKS) {
+			report.append("\n  ").append(common.size() - REPORTED_STACKS).append(" less common stacks omitted");
+		}
+		logger.log(LogLevel.WARN, report.toString());
+
+		if(!resumed) {
+			while(Heartbeat.getFrames() == beat && watched.isAlive()) {
+				Thread.sleep(CHECK_INTERVAL);
+			}
+			if(watched.isAlive()) {
+				logger.log(LogLevel.WARN, "Main thread resumed rendering after " + seconds(System.nanoTime() - stalledSince));
+			}
+		}
+	}
+
+	private static String seconds(long nanos) {
+		return String.format(Locale.ROOT, "%.1fs", nanos / 1e9);
+	}
+
+	private static final class Sample {
+		private final Thread.State state;
+		private final StackTraceElement[] stack;
+		private int count;
+
+		private Sample(Thread.State state, StackTraceElement[] stack) {
+			this.state = state;
+			this.stack = stack;
+		}
+	}
+
+}
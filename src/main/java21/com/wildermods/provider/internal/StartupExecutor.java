@@ -0,0 +1,16 @@
+package com.wildermods.provider.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Java 21+ implementation, packaged under META-INF/versions/21. Startup tasks are
+ * almost entirely blocked on file I/O, so each one gets its own virtual thread.
+ */
+final class StartupExecutor {
+
+	static ExecutorService create() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Provider Startup-", 0).factory());
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.wildermods.provider.loader.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.wildermods.provider.internal.StartupGraph.TaskLog;
+import com.wildermods.provider.loader.util.LibraryDeduplicator.Library;
+import com.wildermods.provider.loader.util.LibraryDeduplicator.Policy;
+
+class LibraryDeduplicatorTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void comparesNumericPartsNumerically() {
+		assertTrue(LibraryDeduplicator.compareVersions("1.10", "1.9") > 0);
+		assertTrue(LibraryDeduplicator.compareVersions("2.0.0", "10.0.0") < 0);
+		assertTrue(LibraryDeduplicator.compareVersions("1.0.1", "1.0") > 0);
+		assertEquals(0, LibraryDeduplicator.compareVersions("3.2.1", "3.2.1"));
+	}
+
+	@Test
+	void releaseIsNewerThanItsQualifiedBuilds() {
+		assertTrue(LibraryDeduplicator.compareVersions("1.0", "1.0-beta") > 0);
+		assertTrue(LibraryDeduplicator.compareVersions("1.0-SNAPSHOT", "1.0") < 0);
+		assertTrue(LibraryDeduplicator.compareVersions("1.0-beta", "1.0-alpha") > 0);
+		assertEquals(0, LibraryDeduplicator.compareVersions("1.0-RC1", "1.0-rc1"));
+	}
+
+	@Test
+	void missingVersionIsOldest() {
+		assertTrue(LibraryDeduplicator.compareVersions(null, "0.0.1") < 0);
+		assertTrue(LibraryDeduplicator.compareVersions("0.0.1", null) > 0);
+		assertEquals(0, LibraryDeduplicator.compareVersions(null, null));
+	}
+
+	@Test
+	void newestPolicyKeepsHighestVersion() throws IOException {
+		Library older = library("gson-2.8.0.jar", "com.google.code.gson", "gson", "2.8.0", "com/google/gson/Gson.class");
+		Library newer = library("gson-2.10.1.jar", "com.google.code.gson", "gson", "2.10.1", "com/google/gson/Gson.class");
+
+		assertEquals(List.of(newer), LibraryDeduplicator.deduplicate(null, List.of(older, newer), Policy.NEWEST));
+	}
+
+	@Test
+	void firstPolicyKeepsFirstOnClasspath() throws IOException {
+		Library older = library("gson-2.8.0.jar", "com.google.code.gson", "gson", "2.8.0", "com/google/gson/Gson.class");
+		Library newer = library("gson-2.10.1.jar", "com.google.code.gson", "gson", "2.10.1", "com/google/gson/Gson.class");
+
+		assertEquals(List.of(older), LibraryDeduplicator.deduplicate(null, List.of(older, newer), Policy.FIRST));
+	}
+
+	@Test
+	void keepAllPolicyOnlyRemovesIdenticalCopies() throws IOException {
+		Library older = library("gson-2.8.0.jar", "com.google.code.gson", "gson", "2.8.0", "com/google/gson/Gson.class");
+		Library newer = library("gson-2.10.1.jar", "com.google.code.gson", "gson", "2.10.1", "com/google/gson/Gson.class");
+		Library copy = library("gson-copy.jar", "com.google.code.gson", "gson", "2.10.1", "com/google/gson/Gson.class");
+
+		assertEquals(List.of(older, newer), LibraryDeduplicator.deduplicate(null, List.of(older, newer, copy), Policy.KEEP_ALL));
+	}
+
+	@Test
+	void splitArtifactsWithoutSharedClassesAreKept() throws IOException {
+		Library classes = library("lwjgl-3.3.1.jar", "org.lwjgl", "lwjgl", "3.3.1", "org/lwjgl/Version.class");
+		Library natives = library("lwjgl-3.3.1-natives.jar", "org.lwjgl", "lwjgl", "3.3.2", "org/lwjgl/system/Natives.class");
+
+		assertEquals(List.of(classes, natives), LibraryDeduplicator.deduplicate(null, List.of(classes, natives), Policy.NEWEST));
+	}
+
+	@Test
+	void differentArtifactsNeverConflict() throws IOException {
+		Library a = library("a-1.0.jar", "com.example", "a", "1.0", "com/example/Shared.class");
+		Library b = library("b-2.0.jar", "com.example", "b", "2.0", "com/example/Shared.class");
+
+		assertEquals(List.of(a, b), LibraryDeduplicator.deduplicate(null, List.of(a, b), Policy.NEWEST));
+	}
+
+	private Library library(String fileName, String groupId, String artifactId, String version, String... classes) throws IOException {
+		Path jar = dir.resolve(fileName);
+		try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+			for(String clazz : classes) {
+				put(out, clazz, new byte[] {(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+			}
+			String pom = "groupId=" + groupId + "\nartifactId=" + artifactId + "\nversion=" + version + "\n";
+			put(out, "META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties", pom.getBytes(StandardCharsets.UTF_8));
+		}
+		return LibraryDeduplicator.scan(jar, new TaskLog());
+	}
+
+	private static void put(JarOutputStream jar, String name, byte[] contents) throws IOException {
+		jar.putNextEntry(new JarEntry(name));
+		jar.write(contents);
+		jar.closeEntry();
+	}
+
+}
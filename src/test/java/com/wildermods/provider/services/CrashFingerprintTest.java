@@ -0,0 +1,95 @@
+package com.wildermods.provider.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class CrashFingerprintTest {
+
+	@Test
+	void stripsMixinGeneratedNames() {
+		assertEquals("handler$onTick", CrashFingerprint.normalizeMethod("handler$zza000$onTick"));
+		assertEquals("handler$onTick", CrashFingerprint.normalizeMethod("handler$zbc123$onTick"));
+		assertEquals("render", CrashFingerprint.normalizeMethod("md5f3a2b$render"));
+		assertEquals("update", CrashFingerprint.normalizeMethod("update"));
+	}
+
+	@Test
+	void stripsLambdaIndices() {
+		assertEquals("lambda$render$", CrashFingerprint.normalizeMethod("lambda$render$12"));
+		assertEquals("lambda$render$", CrashFingerprint.normalizeMethod("lambda$render$0"));
+		assertEquals("lambda$static$", CrashFingerprint.normalizeMethod("lambda$static$3"));
+	}
+
+	@Test
+	void stripsHiddenClassSuffixes() {
+		assertEquals("com.example.Foo$$Lambda", CrashFingerprint.normalizeClass("com.example.Foo$$Lambda$123/0x0000000800c0b248"));
+		assertEquals("com.example.Foo$$Lambda", CrashFingerprint.normalizeClass("com.example.Foo$$Lambda/0x0000000800c0b248"));
+		assertEquals("com.example.Foo$Inner", CrashFingerprint.normalizeClass("com.example.Foo$Inner"));
+	}
+
+	@Test
+	void skipsReflectionFramesAndLimitsCount() {
+		Throwable t = withStack(new IllegalStateException(),
+			frame("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke", 1),
+			frame("com.example.Game", "lambda$tick$7", 10),
+			frame("java.lang.reflect.Method", "invoke", 2),
+			frame("com.example.Game", "tick", 20),
+			frame("java.lang.invoke.LambdaForm$MH/0x0000000800c0c000", "invoke", 3),
+			frame("com.example.Main", "main", 30),
+			frame("com.example.Launcher", "launch", 40));
+
+		assertEquals(List.of("com.example.Game.lambda$tick$", "com.example.Game.tick"), CrashFingerprint.frames(t, 2));
+		assertEquals(List.of("com.example.Game.lambda$tick$", "com.example.Game.tick", "com.example.Main.main", "com.example.Launcher.launch"), CrashFingerprint.frames(t, 10));
+	}
+
+	@Test
+	void fingerprintIgnoresWhatChangesBetweenBuilds() {
+		Throwable a = withStack(new NullPointerException("a"),
+			frame("com.example.Game", "lambda$tick$7", 10),
+			frame("com.example.Game", "handler$zza000$tick", 20));
+		Throwable b = withStack(new NullPointerException("b"),
+			frame("com.example.Game", "lambda$tick$9", 12),
+			frame("jdk.internal.reflect.DirectMethodHandleAccessor", "invoke", 1),
+			frame("com.example.Game", "handler$zzb001$tick", 25));
+
+		String fingerprint = CrashFingerprint.of(new RuntimeException("wrapped", a));
+		assertEquals(fingerprint, CrashFingerprint.of(b));
+		assertEquals(16, fingerprint.length());
+		assertTrue(fingerprint.matches("[0-9a-f]{16}"));
+	}
+
+	@Test
+	void fingerprintDependsOnRootCauseAndFrames() {
+		StackTraceElement[] stack = {frame("com.example.Game", "tick", 10)};
+		String npe = CrashFingerprint.of(withStack(new NullPointerException(), stack));
+
+		assertNotEquals(npe, CrashFingerprint.of(withStack(new IllegalStateException(), stack)));
+		assertNotEquals(npe, CrashFingerprint.of(withStack(new NullPointerException(), frame("com.example.Game", "render", 10))));
+	}
+
+	@Test
+	void rootCauseSurvivesCycles() {
+		Exception a = new Exception("a");
+		Exception b = new Exception("b", a);
+		a.initCause(b);
+
+		Throwable root = CrashFingerprint.rootCause(a);
+		assertTrue(root == a || root == b);
+		assertEquals(16, CrashFingerprint.of(a).length());
+	}
+
+	private static Throwable withStack(Throwable t, StackTraceElement... stack) {
+		t.setStackTrace(stack);
+		return t;
+	}
+
+	private static StackTraceElement frame(String className, String method, int line) {
+		return new StackTraceElement(className, method, className.substring(className.lastIndexOf('.') + 1) + ".java", line);
+	}
+
+}
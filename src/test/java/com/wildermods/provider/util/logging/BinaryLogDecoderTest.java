@@ -0,0 +1,106 @@
+package com.wildermods.provider.util.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryLogDecoderTest {
+
+	private static final String NL = System.lineSeparator();
+	private static final long TIME = 1700000000000L;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void roundTripsEvents() throws IOException {
+		Path file = dir.resolve("debug.bin");
+		String trace = "java.lang.IllegalStateException: boom" + NL + "\tat com.example.Foo.bar(Foo.java:1)" + NL;
+		try(BinaryLogWriter writer = new BinaryLogWriter(file)) {
+			writer.write(TIME, "INFO", "main", "Fabric Loader", "GAME_PROVIDER", "Loading {} mods", new String[] {"12"}, null, false);
+			writer.write(TIME + 5, "INFO", "main", "Fabric Loader", null, "Loading {} mods", new String[] {"13"}, null, false);
+			writer.write(TIME + 2, "WARN", "Render Thread", "Wildermyth", null, "Unicode \u00e9\u4e2d\ud83d\ude00", null, null, false);
+			writer.write(TIME + 2, "ERROR", "main", "Wildermyth", null, "Failed", null, trace, true);
+		}
+
+		assertEquals(
+			line(TIME, "main", "INFO", "Fabric Loader", "GAME_PROVIDER", "Loading 12 mods")
+			+ line(TIME + 5, "main", "INFO", "Fabric Loader", "", "Loading 13 mods")
+			+ line(TIME + 2, "Render Thread", "WARN", "Wildermyth", "", "Unicode \u00e9\u4e2d\ud83d\ude00")
+			+ line(TIME + 2, "main", "ERROR", "Wildermyth", "", "Failed") + trace,
+			decode(Files.readAllBytes(file)));
+	}
+
+	@Test
+	void roundTripsStringsTooLongToIntern() throws IOException {
+		Path file = dir.resolve("debug.bin");
+		char[] chars = new char[2000];
+		Arrays.fill(chars, 'x');
+		String message = new String(chars);
+		try(BinaryLogWriter writer = new BinaryLogWriter(file)) {
+			writer.write(TIME, "DEBUG", "main", "Logger", null, message, null, null, false);
+			writer.write(TIME, "DEBUG", "main", "Logger", null, message, null, null, false);
+		}
+
+		String expected = line(TIME, "main", "DEBUG", "Logger", "", message);
+		assertEquals(expected + expected, decode(Files.readAllBytes(file)));
+	}
+
+	@Test
+	void keepsEventsBeforeTruncatedRecord() throws IOException {
+		Path file = dir.resolve("debug.bin");
+		try(BinaryLogWriter writer = new BinaryLogWriter(file)) {
+			writer.write(TIME, "INFO", "main", "Logger", null, "first", null, null, false);
+			writer.write(TIME, "INFO", "main", "Logger", null, "second", null, null, false);
+		}
+		byte[] bytes = Files.readAllBytes(file);
+
+		assertEquals(line(TIME, "main", "INFO", "Logger", "", "first"), decode(Arrays.copyOf(bytes, bytes.length - 3)));
+	}
+
+	@Test
+	void rejectsOtherFiles() {
+		assertThrows(IOException.class, () -> new BinaryLogDecoder(new ByteArrayInputStream(new byte[] {'<', 'x', 'm', 'l', '>'})));
+	}
+
+	@Test
+	void formatsLikeLog4j() {
+		assertEquals("a 1 b 2", format("a {} b {}", "1", "2"));
+		assertEquals("a {} b 1", format("a \\{} b {}", "1"));
+		assertEquals("a \\1", format("a \\\\{}", "1"));
+		assertEquals("1 {} {}", format("{} {} {}", "1"));
+		assertEquals("no placeholders", format("no placeholders", "1"));
+	}
+
+	private static String decode(byte[] bytes) throws IOException {
+		StringWriter out = new StringWriter();
+		try(InputStream in = new ByteArrayInputStream(bytes)) {
+			new BinaryLogDecoder(in).decode(out);
+		}
+		return out.toString();
+	}
+
+	private static String line(long time, String thread, String level, String logger, String marker, String message) {
+		String date = new SimpleDateFormat("ddMMMyyyy HH:mm:ss.SSS").format(new Date(time));
+		return "[" + date + "] [" + thread + "/" + level + "] [" + logger + "/" + marker + "]: " + message + NL;
+	}
+
+	private static String format(String format, String... params) {
+		StringBuilder out = new StringBuilder();
+		BinaryLogDecoder.appendFormatted(out, format, params);
+		return out.toString();
+	}
+
+}
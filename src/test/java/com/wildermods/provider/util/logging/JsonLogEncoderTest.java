@@ -0,0 +1,74 @@
+package com.wildermods.provider.util.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class JsonLogEncoderTest {
+
+	@Test
+	void escapesJsonSpecialCharacters() throws IOException {
+		assertEquals("{\"message\":\"say \\\"hi\\\" \\\\ bye\"}\n", encode("say \"hi\" \\ bye"));
+		assertEquals("{\"message\":\"a\\nb\\rc\\td\"}\n", encode("a\nb\rc\td"));
+	}
+
+	@Test
+	void escapesControlCharactersAsUnicode() throws IOException {
+		assertEquals("{\"message\":\"\\u0000\\u0001\\u001f\\u0008\\u000c\"}\n", encode("\u0000\u0001\u001f\b\f"));
+		assertEquals("{\"message\":\"\u007f /\"}\n", encode("\u007f /"));
+	}
+
+	@Test
+	void writesNonAsciiAsUtf8() throws IOException {
+		String text = "\u00e9 \u4e2d \ud83d\ude00";
+		assertEquals("{\"message\":\"" + text + "\"}\n", encode(text));
+	}
+
+	@Test
+	void replacesUnpairedSurrogates() throws IOException {
+		assertEquals("{\"message\":\"a?b?\"}\n", encode("a\ud83db\ude00"));
+		assertEquals("{\"message\":\"?\"}\n", encode("\ud83d"));
+	}
+
+	@Test
+	void separatesFieldsAndSkipsNulls() throws IOException {
+		JsonLogEncoder encoder = JsonLogEncoder.get().begin()
+			.field("time", 42)
+			.field("marker", (CharSequence) null)
+			.field("thrown", (Throwable) null)
+			.field("level", "INFO")
+			.end();
+		assertEquals("{\"time\":42,\"level\":\"INFO\"}\n", written(encoder));
+	}
+
+	@Test
+	void escapesStackTraces() throws IOException {
+		RuntimeException e = new RuntimeException("bad \"value\"\t\ud83d\ude00");
+		e.setStackTrace(new StackTraceElement[0]);
+		JsonLogEncoder encoder = JsonLogEncoder.get().begin().field("thrown", e).end();
+
+		String lineSeparator = System.lineSeparator().replace("\r", "\\r").replace("\n", "\\n");
+		assertEquals("{\"thrown\":\"java.lang.RuntimeException: bad \\\"value\\\"\\t\ud83d\ude00" + lineSeparator + "\"}\n", written(encoder));
+	}
+
+	@Test
+	void reusesBufferBetweenEvents() throws IOException {
+		encode("a much longer message than the one that follows it");
+		assertEquals("{\"message\":\"short\"}\n", encode("short"));
+	}
+
+	private static String encode(String message) throws IOException {
+		return written(JsonLogEncoder.get().begin().field("message", message).end());
+	}
+
+	private static String written(JsonLogEncoder encoder) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		encoder.writeTo(out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.wildermods.provider.util.logging;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+class LogFloodGuardTest {
+
+	private static final Logger LOGGER = LogManager.getLogger("LogFloodGuardTest");
+
+	@Test
+	void admitsUpToLimit() {
+		LogFloodGuard guard = new LogFloodGuard(2, 60000);
+		assertTrue(guard.admit(LOGGER, LogLevel.WARN, null, "repeated", null));
+		assertTrue(guard.admit(LOGGER, LogLevel.WARN, null, "repeated", null));
+		assertFalse(guard.admit(LOGGER, LogLevel.WARN, null, "repeated", null));
+		assertTrue(guard.admit(LOGGER, LogLevel.WARN, null, "different", null));
+		assertTrue(guard.admit(LOGGER, LogLevel.ERROR, null, "repeated", null));
+	}
+
+	@Test
+	void throwablesAreKeyedByStack() {
+		LogFloodGuard guard = new LogFloodGuard(1, 60000);
+		assertTrue(guard.admit(LOGGER, LogLevel.ERROR, null, null, failure(new IllegalStateException("a"))));
+		assertFalse(guard.admit(LOGGER, LogLevel.ERROR, null, null, failure(new IllegalStateException("b"))));
+		assertTrue(guard.admit(LOGGER, LogLevel.ERROR, null, null, failure(new IllegalArgumentException("a"))));
+	}
+
+	@Test
+	void acceptsEventsWithoutMessageOrThrowable() {
+		LogFloodGuard guard = new LogFloodGuard(1, 60000);
+		assertTrue(guard.admit(LOGGER, LogLevel.INFO, null, null, null));
+		assertFalse(guard.admit(LOGGER, LogLevel.INFO, null, null, null));
+		guard.sweep(System.nanoTime());
+	}
+
+	private static Throwable failure(Throwable t) {
+		t.setStackTrace(new StackTraceElement[] {new StackTraceElement("com.example.Mod", "tick", "Mod.java", 10)});
+		return t;
+	}
+
+}